@@ -0,0 +1,361 @@
+package bms.hazardevaluation;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.HazardSensor;
+import bms.sensors.SensorKind;
+import bms.sensors.TimedSensor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Evaluates the hazard level of every room in a group of buildings at once.
+ * <p>
+ * Rather than calling each room's hazard evaluator in turn, the sensors used
+ * by all evaluators are laid out in columns, one column per kind of sensor
+ * with one row per room. Each evaluation gathers the position of the current
+ * reading of every sensor a column at a time, maps the positions through the
+ * sensors' hazard level tables (see {@link TimedSensor#getHazardLevelTable()}),
+ * then combines the columns for all rooms in simple loops over primitive
+ * arrays. Only sensors without a level table have their hazard level
+ * calculated by {@link HazardSensor#getHazardLevel()}.
+ * <p>
+ * The layout is built from the rooms and hazard evaluators present when the
+ * batch evaluator is created. If floors, rooms, sensors or evaluators are
+ * changed afterwards, a new batch evaluator should be created.
+ * <p>
+ * The columns are combined with plain loops rather than the Vector API
+ * ({@code jdk.incubator.vector}). That API is an incubator module: it only
+ * exists on JDK 16 and later, and every compile and launch must pass
+ * {@code --add-modules jdk.incubator.vector}, which would break building
+ * and running the project with a plain {@code javac} and {@code java}.
+ */
+public class BatchHazardEvaluator {
+    /**
+     * Rooms are evaluated by calling their hazard evaluator directly.
+     */
+    private static final byte FALLBACK = 0;
+
+    /**
+     * Room has no hazard evaluator.
+     */
+    private static final byte NO_EVALUATOR = 1;
+
+    /**
+     * Room has a rule-based hazard evaluator.
+     */
+    private static final byte RULE_BASED = 2;
+
+    /**
+     * Room has a weighting-based hazard evaluator.
+     */
+    private static final byte WEIGHTING_BASED = 3;
+
+    /**
+     * All rooms evaluated, in building, floor and room order.
+     */
+    private List<Room> rooms;
+
+    /**
+     * How each room is evaluated.
+     */
+    private byte[] modes;
+
+    /**
+     * Sensors used by each room's evaluator, indexed by sensor kind then
+     * room; null where the evaluator has no sensor of that kind.
+     */
+    private HazardSensor[][] sensors;
+
+    /**
+     * Sensors with a hazard level table, indexed like {@link #sensors}; null
+     * where there is no sensor or it has no table.
+     */
+    private TimedSensor[][] tabledSensors;
+
+    /**
+     * Hazard level table of each sensor in {@link #tabledSensors}, indexed
+     * like {@link #sensors}.
+     */
+    private byte[][][] levelTables;
+
+    /**
+     * Position of the current reading of each sensor in
+     * {@link #tabledSensors}, indexed like {@link #sensors}. Reused between
+     * evaluations.
+     */
+    private int[][] readingIndices;
+
+    /**
+     * Weighting of each sensor, indexed like {@link #sensors}; zero for
+     * rooms without a weighting-based evaluator.
+     */
+    private int[][] weightings;
+
+    /**
+     * Sum of the weightings of each room; 1 for rooms without a
+     * weighting-based evaluator.
+     */
+    private int[] weightingTotals;
+
+    /**
+     * Number of sensors used by each room's evaluator.
+     */
+    private int[] sensorCounts;
+
+    /**
+     * Current hazard level of each sensor, indexed like {@link #sensors};
+     * zero where there is no sensor. Reused between evaluations.
+     */
+    private int[][] levels;
+
+    /**
+     * Creates a new batch evaluator over all rooms in the given buildings.
+     *
+     * @param buildings buildings whose rooms are to be evaluated
+     */
+    public BatchHazardEvaluator(List<Building> buildings) {
+        this.rooms = new ArrayList<>();
+        for (Building building : buildings) {
+            for (Floor floor : building.getFloorsView()) {
+                this.rooms.addAll(floor.getRoomsView());
+            }
+        }
+
+        int numRooms = this.rooms.size();
+        int numKinds = SensorKind.count();
+        this.modes = new byte[numRooms];
+        this.sensors = new HazardSensor[numKinds][numRooms];
+        this.tabledSensors = new TimedSensor[numKinds][numRooms];
+        this.levelTables = new byte[numKinds][numRooms][];
+        this.readingIndices = new int[numKinds][numRooms];
+        this.weightings = new int[numKinds][numRooms];
+        this.weightingTotals = new int[numRooms];
+        this.sensorCounts = new int[numRooms];
+        this.levels = new int[numKinds][numRooms];
+
+        for (int room = 0; room < numRooms; room++) {
+            this.weightingTotals[room] = 1;
+            this.modes[room] = this.layOut(room,
+                    this.rooms.get(room).getHazardEvaluator());
+        }
+    }
+
+    /**
+     * Places the sensors of the given room's evaluator in their columns.
+     *
+     * @param room row of the room
+     * @param evaluator the room's hazard evaluator
+     * @return how the room should be evaluated
+     */
+    private byte layOut(int room, HazardEvaluator evaluator) {
+        if (evaluator == null) {
+            return NO_EVALUATOR;
+        }
+        if (evaluator instanceof RuleBasedHazardEvaluator) {
+            List<HazardSensor> ruleSensors =
+                    ((RuleBasedHazardEvaluator) evaluator).getSensors();
+            for (HazardSensor sensor : ruleSensors) {
+                if (!this.place(room, sensor, 0)) {
+                    this.clear(room);
+                    return FALLBACK;
+                }
+            }
+            this.sensorCounts[room] = ruleSensors.size();
+            return RULE_BASED;
+        }
+        if (evaluator instanceof WeightingBasedHazardEvaluator) {
+            WeightingBasedHazardEvaluator weighted =
+                    (WeightingBasedHazardEvaluator) evaluator;
+            for (int i = 0; i < weighted.getSensorCount(); i++) {
+                if (!this.place(room, weighted.getSensor(i),
+                        weighted.getWeightingAt(i))) {
+                    this.clear(room);
+                    return FALLBACK;
+                }
+            }
+            this.sensorCounts[room] = weighted.getSensorCount();
+            this.weightingTotals[room] = weighted.getWeightingTotal();
+            return WEIGHTING_BASED;
+        }
+        return FALLBACK;
+    }
+
+    /**
+     * Places a sensor in its column for the given room.
+     *
+     * @param room row of the room
+     * @param sensor sensor to place
+     * @param weighting weighting of the sensor
+     * @return false if the sensor is not a known kind, or the room already
+     * has a sensor of that kind
+     */
+    private boolean place(int room, HazardSensor sensor, int weighting) {
+        SensorKind kind = SensorKind.of(sensor);
+        if (kind == null || this.sensors[kind.ordinal()][room] != null) {
+            return false;
+        }
+        this.sensors[kind.ordinal()][room] = sensor;
+        this.weightings[kind.ordinal()][room] = weighting;
+        if (sensor instanceof TimedSensor) {
+            TimedSensor timedSensor = (TimedSensor) sensor;
+            byte[] table = timedSensor.getHazardLevelTable();
+            if (table != null) {
+                this.tabledSensors[kind.ordinal()][room] = timedSensor;
+                this.levelTables[kind.ordinal()][room] = table;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all sensors placed for the given room.
+     *
+     * @param room row of the room
+     */
+    private void clear(int room) {
+        for (int kind = 0; kind < this.sensors.length; kind++) {
+            this.sensors[kind][room] = null;
+            this.tabledSensors[kind][room] = null;
+            this.levelTables[kind][room] = null;
+            this.weightings[kind][room] = 0;
+        }
+    }
+
+    /**
+     * Returns the rooms evaluated by this batch evaluator, in the order their
+     * hazard levels are returned.
+     *
+     * @return unmodifiable list of rooms
+     */
+    public List<Room> getRooms() {
+        return Collections.unmodifiableList(this.rooms);
+    }
+
+    /**
+     * Calculates the current hazard level of every room.
+     *
+     * @return hazard level of each room, in the order of {@link #getRooms()};
+     * -1 for rooms without a hazard evaluator
+     */
+    public int[] evaluate() {
+        int[] result = new int[this.rooms.size()];
+        this.evaluate(result);
+        return result;
+    }
+
+    /**
+     * Calculates the current hazard level of every room, storing the results
+     * in the given array.
+     * <p>
+     * Each level is the same value the room's own hazard evaluator would
+     * return.
+     *
+     * @param result array of at least {@code getRooms().size()} elements to
+     *               hold the hazard level of each room, in the order of
+     *               {@link #getRooms()}; -1 for rooms without a hazard
+     *               evaluator
+     * @throws IllegalArgumentException if the array is too small
+     */
+    public void evaluate(int[] result) throws IllegalArgumentException {
+        int numRooms = this.rooms.size();
+        if (result.length < numRooms) {
+            throw new IllegalArgumentException("Result array must hold "
+                    + numRooms + " levels");
+        }
+
+        // gather the sensor levels a column at a time, so each loop only
+        // ever sees one kind of sensor
+        for (int kind = 0; kind < this.sensors.length; kind++) {
+            TimedSensor[] tabledColumn = this.tabledSensors[kind];
+            int[] indexColumn = this.readingIndices[kind];
+            for (int room = 0; room < numRooms; room++) {
+                TimedSensor sensor = tabledColumn[room];
+                if (sensor != null) {
+                    indexColumn[room] = sensor.getCurrentIndex();
+                }
+            }
+
+            byte[][] tableColumn = this.levelTables[kind];
+            HazardSensor[] column = this.sensors[kind];
+            int[] levelColumn = this.levels[kind];
+            for (int room = 0; room < numRooms; room++) {
+                byte[] table = tableColumn[room];
+                if (table != null) {
+                    levelColumn[room] = table[indexColumn[room]];
+                } else {
+                    HazardSensor sensor = column[room];
+                    levelColumn[room] = sensor == null ? 0
+                            : sensor.getHazardLevel();
+                }
+            }
+        }
+
+        // weighted sums for every room; rooms without weightings sum to 0
+        for (int room = 0; room < numRooms; room++) {
+            result[room] = 0;
+        }
+        for (int kind = 0; kind < this.levels.length; kind++) {
+            int[] levelColumn = this.levels[kind];
+            int[] weightingColumn = this.weightings[kind];
+            for (int room = 0; room < numRooms; room++) {
+                result[room] += levelColumn[room] * weightingColumn[room];
+            }
+        }
+
+        for (int room = 0; room < numRooms; room++) {
+            switch (this.modes[room]) {
+                case WEIGHTING_BASED:
+                    int total = this.weightingTotals[room];
+                    result[room] = (result[room] + total / 2) / total;
+                    break;
+                case RULE_BASED:
+                    result[room] = this.ruleBasedLevel(room);
+                    break;
+                case NO_EVALUATOR:
+                    result[room] = -1;
+                    break;
+                default:
+                    result[room] = this.rooms.get(room).getHazardEvaluator()
+                            .evaluateHazardLevel();
+            }
+        }
+    }
+
+    /**
+     * Calculates the hazard level of a room with a rule-based evaluator from
+     * the gathered sensor levels, following
+     * {@link RuleBasedHazardEvaluator#evaluateHazardLevel()}.
+     *
+     * @param room row of the room
+     * @return hazard level of the room
+     */
+    private int ruleBasedLevel(int room) {
+        int count = this.sensorCounts[room];
+        int sum = 0;
+        boolean maximum = false;
+        for (int kind = 0; kind < this.levels.length; kind++) {
+            int level = this.levels[kind][room];
+            sum += level;
+            maximum |= level == 100;
+        }
+        if (count == 0) {
+            return 0;
+        } else if (count == 1) {
+            // absent sensors contribute 0, so the sum is the only level
+            return sum;
+        } else if (maximum) {
+            return 100;
+        }
+        // RuleBasedHazardEvaluator compares each sensor's class name to
+        // "OccupancySensor" with !=, which compares references, so the test
+        // always passes. Every sensor, occupancy sensors included, adds one
+        // to a total that is then divided by the number of sensors. The
+        // batch must give the same levels as the rooms' own evaluators, so
+        // it reproduces this rather than weighting by occupancy
+        return 1;
+    }
+}
@@ -0,0 +1,179 @@
+package bms.hazardevaluation;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.*;
+import bms.util.TimedItemManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BatchHazardEvaluatorTest {
+    private List<Building> buildings;
+    private List<TimedSensor> sensors;
+
+    @Before
+    public void setUp() throws Exception {
+        buildings = new ArrayList<>();
+        sensors = new ArrayList<>();
+        Building building = new Building("Batch Building");
+        Floor floor = new Floor(1, 20, 20);
+        building.addFloor(floor);
+
+        // rule based, several sensors including occupancy
+        Room room1 = new Room(101, RoomType.STUDY, 20);
+        OccupancySensor occupancy = add(room1, new OccupancySensor(
+                new int[]{3, 12, 25, 30}, 1, 30));
+        NoiseSensor noise = add(room1, new NoiseSensor(
+                new int[]{55, 71, 82, 60}, 2));
+        TemperatureSensor temperature = add(room1, new TemperatureSensor(
+                new int[]{21, 40, 68, 25}));
+        List<HazardSensor> ruleSensors = new ArrayList<>();
+        ruleSensors.add(occupancy);
+        ruleSensors.add(noise);
+        ruleSensors.add(temperature);
+        room1.setHazardEvaluator(new RuleBasedHazardEvaluator(ruleSensors));
+
+        // rule based, single sensor
+        Room room2 = new Room(102, RoomType.OFFICE, 20);
+        CarbonDioxideSensor co2 = add(room2, new CarbonDioxideSensor(
+                new int[]{700, 1500, 3000, 6000}, 1, 600, 250));
+        List<HazardSensor> single = new ArrayList<>();
+        single.add(co2);
+        room2.setHazardEvaluator(new RuleBasedHazardEvaluator(single));
+
+        // weighting based
+        Room room3 = new Room(103, RoomType.LABORATORY, 20);
+        NoiseSensor noise3 = add(room3, new NoiseSensor(
+                new int[]{65, 75, 50}, 1));
+        OccupancySensor occupancy3 = add(room3, new OccupancySensor(
+                new int[]{1, 4, 7, 9, 2}, 3, 10));
+        Map<HazardSensor, Integer> weightings = new HashMap<>();
+        weightings.put(noise3, 35);
+        weightings.put(occupancy3, 65);
+        room3.setHazardEvaluator(new WeightingBasedHazardEvaluator(weightings));
+
+        // no evaluator
+        Room room4 = new Room(104, RoomType.STUDY, 20);
+        add(room4, new TemperatureSensor(new int[]{18, 19}));
+
+        floor.addRoom(room1);
+        floor.addRoom(room2);
+        floor.addRoom(room3);
+        floor.addRoom(room4);
+        buildings.add(building);
+    }
+
+    private <T extends TimedSensor> T add(Room room, T sensor)
+            throws Exception {
+        room.addSensor(sensor);
+        sensors.add(sensor);
+        return sensor;
+    }
+
+    @Test
+    public void roomOrderTest() {
+        BatchHazardEvaluator batch = new BatchHazardEvaluator(buildings);
+        Assert.assertEquals(4, batch.getRooms().size());
+        Assert.assertEquals(101, batch.getRooms().get(0).getRoomNumber());
+        Assert.assertEquals(104, batch.getRooms().get(3).getRoomNumber());
+    }
+
+    @Test
+    public void matchesRoomEvaluatorsTest() {
+        BatchHazardEvaluator batch = new BatchHazardEvaluator(buildings);
+        int[] levels = new int[batch.getRooms().size()];
+        for (int minute = 0; minute < 30; minute++) {
+            batch.evaluate(levels);
+            for (int i = 0; i < levels.length; i++) {
+                HazardEvaluator evaluator =
+                        batch.getRooms().get(i).getHazardEvaluator();
+                int expected = evaluator == null ? -1
+                        : evaluator.evaluateHazardLevel();
+                Assert.assertEquals("room " + i + " at minute " + minute,
+                        expected, levels[i]);
+            }
+            for (TimedSensor sensor : sensors) {
+                sensor.elapseOneMinute();
+            }
+        }
+    }
+
+    @Test
+    public void ruleBasedQuirkTest() throws Exception {
+        // RuleBasedHazardEvaluator never recognises occupancy sensors, so a
+        // room with several sensors is either 100 or 1, whatever its
+        // occupancy
+        Room room = new Room(105, RoomType.STUDY, 20);
+        OccupancySensor occupancy = add(room, new OccupancySensor(
+                new int[]{5, 10}, 1, 10));
+        NoiseSensor noise = add(room, new NoiseSensor(new int[]{60, 62}, 1));
+        List<HazardSensor> ruleSensors = new ArrayList<>();
+        ruleSensors.add(occupancy);
+        ruleSensors.add(noise);
+        room.setHazardEvaluator(new RuleBasedHazardEvaluator(ruleSensors));
+        buildings.get(0).getFloorByNumber(1).addRoom(room);
+
+        BatchHazardEvaluator batch = new BatchHazardEvaluator(buildings);
+        int[] levels = new int[batch.getRooms().size()];
+        batch.evaluate(levels);
+        Assert.assertEquals(1, room.getHazardEvaluator().evaluateHazardLevel());
+        Assert.assertEquals(1, levels[4]);
+
+        // full occupancy counts like any other sensor at 100
+        occupancy.elapseOneMinute();
+        batch.evaluate(levels);
+        Assert.assertEquals(100,
+                room.getHazardEvaluator().evaluateHazardLevel());
+        Assert.assertEquals(100, levels[4]);
+    }
+
+    @Test
+    public void storedSensorsTest() throws Exception {
+        TimedItemManager manager = new TimedItemManager();
+        Room room = new Room(106, RoomType.OFFICE, 20);
+        TimedItemManager.Scope scope = manager.makeCurrent();
+        try {
+            // sensors in a store report positions relative to their own
+            // readings
+            SensorStore store = new SensorStore();
+            new NoiseSensor(store, new int[]{40, 41, 42}, 1);
+            CarbonDioxideSensor co2 = new CarbonDioxideSensor(store,
+                    new int[]{700, 1500, 3000, 6000, 900}, 2, 600, 250);
+            TemperatureSensor temperature = new TemperatureSensor(store,
+                    new int[]{21, 70, 22});
+            room.addSensor(co2);
+            room.addSensor(temperature);
+            Map<HazardSensor, Integer> weightings = new HashMap<>();
+            weightings.put(co2, 40);
+            weightings.put(temperature, 60);
+            room.setHazardEvaluator(
+                    new WeightingBasedHazardEvaluator(weightings));
+        } finally {
+            scope.close();
+        }
+        buildings.get(0).getFloorByNumber(1).addRoom(room);
+
+        BatchHazardEvaluator batch = new BatchHazardEvaluator(buildings);
+        int[] levels = new int[batch.getRooms().size()];
+        for (int minute = 0; minute < 12; minute++) {
+            batch.evaluate(levels);
+            Assert.assertEquals("minute " + minute,
+                    room.getHazardEvaluator().evaluateHazardLevel(),
+                    levels[4]);
+            manager.elapseOneMinute();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resultTooSmallTest() {
+        new BatchHazardEvaluator(buildings).evaluate(new int[3]);
+    }
+}
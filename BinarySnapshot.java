@@ -0,0 +1,702 @@
+package bms.building;
+
+import bms.exceptions.DuplicateFloorException;
+import bms.exceptions.DuplicateRoomException;
+import bms.exceptions.DuplicateSensorException;
+import bms.exceptions.FileFormatException;
+import bms.exceptions.FloorTooSmallException;
+import bms.exceptions.InsufficientSpaceException;
+import bms.exceptions.NoFloorBelowException;
+import bms.floor.Floor;
+import bms.floor.MaintenanceSchedule;
+import bms.hazardevaluation.HazardEvaluator;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.hazardevaluation.WeightingBasedHazardEvaluator;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.*;
+
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads and writes lists of buildings in a compact, versioned binary format.
+ * <p>
+ * Snapshots hold the same information as the text save file format (see
+ * {@link BuildingInitialiser}), but integers are stored as variable-length
+ * quantities and sensor readings are stored as packed arrays, so snapshots
+ * are much smaller and faster to read and write. The text format remains the
+ * format used to exchange buildings between programs.
+ * <p>
+ * A snapshot begins with the magic number "BMSS" and a format version,
+ * followed by the buildings. Within each building, floors are written in
+ * order, followed by their rooms, sensors and maintenance schedule.
+ */
+public class BinarySnapshot {
+    /**
+     * Magic number at the start of every snapshot ("BMSS").
+     */
+    private static final int MAGIC = 0x424D5353;
+
+    /**
+     * Version of the snapshot format written by this class.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the read and write buffers, in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Evaluator code for rooms with no hazard evaluator.
+     */
+    private static final int NO_EVALUATOR = 0;
+
+    /**
+     * Evaluator code for rooms with a rule based hazard evaluator.
+     */
+    private static final int RULE_BASED = 1;
+
+    /**
+     * Evaluator code for rooms with a weighting based hazard evaluator.
+     */
+    private static final int WEIGHTING_BASED = 2;
+
+    /**
+     * Sensor code for carbon dioxide sensors.
+     */
+    private static final int CARBON_DIOXIDE = 0;
+
+    /**
+     * Sensor code for noise sensors.
+     */
+    private static final int NOISE = 1;
+
+    /**
+     * Sensor code for occupancy sensors.
+     */
+    private static final int OCCUPANCY = 2;
+
+    /**
+     * Sensor code for temperature sensors.
+     */
+    private static final int TEMPERATURE = 3;
+
+    private BinarySnapshot() {
+    }
+
+    /**
+     * Saves the given list of buildings to a snapshot file with the given
+     * filename, in the "saves" directory.
+     *
+     * @param filename path of the file to save the buildings to
+     * @param buildings buildings to be saved
+     * @throws IOException if an IOException is encountered when writing to
+     * the file
+     */
+    public static void save(String filename, List<Building> buildings)
+            throws IOException {
+        try (OutputStream out = new FileOutputStream("saves/" + filename)) {
+            write(out, buildings);
+        }
+    }
+
+    /**
+     * Loads a list of buildings from a snapshot file with the given filename,
+     * in the "saves" directory.
+     *
+     * @param filename path of the file from which to load the buildings
+     * @return a list containing all the buildings loaded from the file
+     * @throws IOException if an IOException is encountered when reading from
+     * the file
+     * @throws FileFormatException if the file is not a valid snapshot
+     */
+    public static List<Building> load(String filename)
+            throws IOException, FileFormatException {
+        try (InputStream in = new FileInputStream("saves/" + filename)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given buildings to an output stream.
+     * <p>
+     * The stream is flushed, but not closed.
+     *
+     * @param out stream to write the snapshot to
+     * @param buildings buildings to be written
+     * @throws IOException if an IOException is encountered when writing
+     */
+    public static void write(OutputStream out, List<Building> buildings)
+            throws IOException {
+        SnapshotOutput output = new SnapshotOutput(out);
+        output.writeInt(MAGIC);
+        output.writeVarint(VERSION);
+        output.writeVarint(buildings.size());
+        for (Building building : buildings) {
+            writeBuilding(output, building);
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads a snapshot of a list of buildings from an input stream.
+     *
+     * @param in stream to read the snapshot from
+     * @return a list containing all the buildings in the snapshot
+     * @throws IOException if an IOException is encountered when reading
+     * @throws FileFormatException if the stream does not contain a valid
+     * snapshot
+     */
+    public static List<Building> read(InputStream in)
+            throws IOException, FileFormatException {
+        SnapshotInput input = new SnapshotInput(in);
+        if (input.readInt() != MAGIC) {
+            throw new FileFormatException("Not a building snapshot");
+        }
+        int version = input.readVarint();
+        if (version != VERSION) {
+            throw new FileFormatException("Unsupported snapshot version: "
+                    + version);
+        }
+        int numBuildings = input.readCount();
+        List<Building> buildings = new ArrayList<>(numBuildings);
+        for (int i = 0; i < numBuildings; i++) {
+            buildings.add(readBuilding(input));
+        }
+        return buildings;
+    }
+
+    /**
+     * Writes a building and all of its floors.
+     *
+     * @param output output to write to
+     * @param building building to write
+     * @throws IOException if an IOException is encountered when writing
+     */
+    private static void writeBuilding(SnapshotOutput output,
+                                      Building building) throws IOException {
+        output.writeString(building.getName());
+        List<Floor> floors = building.getFloorsView();
+        output.writeVarint(floors.size());
+        for (Floor floor : floors) {
+            writeFloor(output, floor);
+        }
+    }
+
+    /**
+     * Writes a floor, its rooms, and its maintenance schedule.
+     *
+     * @param output output to write to
+     * @param floor floor to write
+     * @throws IOException if an IOException is encountered when writing
+     */
+    private static void writeFloor(SnapshotOutput output, Floor floor)
+            throws IOException {
+        output.writeSignedVarint(floor.getFloorNumber());
+        output.writeDouble(floor.getWidth());
+        output.writeDouble(floor.getLength());
+        List<Room> rooms = floor.getRoomsView();
+        output.writeVarint(rooms.size());
+        for (Room room : rooms) {
+            writeRoom(output, room);
+        }
+
+        MaintenanceSchedule schedule = floor.getMaintenanceSchedule();
+        if (schedule == null) {
+            output.writeVarint(0);
+        } else {
+            List<Room> roomOrder = schedule.getRoomOrder();
+            output.writeVarint(roomOrder.size());
+            for (Room room : roomOrder) {
+                output.writeSignedVarint(room.getRoomNumber());
+            }
+        }
+    }
+
+    /**
+     * Writes a room, its hazard evaluator, and its sensors.
+     *
+     * @param output output to write to
+     * @param room room to write
+     * @throws IOException if an IOException is encountered when writing
+     */
+    private static void writeRoom(SnapshotOutput output, Room room)
+            throws IOException {
+        output.writeSignedVarint(room.getRoomNumber());
+        output.writeVarint(room.getType().ordinal());
+        output.writeDouble(room.getArea());
+
+        HazardEvaluator evaluator = room.getHazardEvaluator();
+        WeightingBasedHazardEvaluator weighted = null;
+        if (evaluator instanceof WeightingBasedHazardEvaluator) {
+            output.writeVarint(WEIGHTING_BASED);
+            weighted = (WeightingBasedHazardEvaluator) evaluator;
+        } else if (evaluator instanceof RuleBasedHazardEvaluator) {
+            output.writeVarint(RULE_BASED);
+        } else {
+            output.writeVarint(NO_EVALUATOR);
+        }
+
+        List<Sensor> sensors = room.getSensorsView();
+        output.writeVarint(sensors.size());
+        for (int i = 0; i < sensors.size(); i++) {
+            TimedSensor sensor = (TimedSensor) sensors.get(i);
+            writeSensor(output, sensor);
+            if (weighted != null) {
+                output.writeVarint(
+                        weighted.getWeighting((HazardSensor) sensor));
+            }
+        }
+    }
+
+    /**
+     * Writes a sensor, its readings, and any sensor-specific values.
+     *
+     * @param output output to write to
+     * @param sensor sensor to write
+     * @throws IOException if an IOException is encountered when writing
+     */
+    private static void writeSensor(SnapshotOutput output, TimedSensor sensor)
+            throws IOException {
+        if (sensor instanceof CarbonDioxideSensor) {
+            output.writeVarint(CARBON_DIOXIDE);
+        } else if (sensor instanceof NoiseSensor) {
+            output.writeVarint(NOISE);
+        } else if (sensor instanceof OccupancySensor) {
+            output.writeVarint(OCCUPANCY);
+        } else {
+            output.writeVarint(TEMPERATURE);
+        }
+        output.writeVarint(sensor.getUpdateFrequency());
+        int length = sensor.getReadingsLength();
+        output.writeVarint(length);
+        for (int i = 0; i < length; i++) {
+            output.writeVarint(sensor.getReading(i));
+        }
+
+        if (sensor instanceof CarbonDioxideSensor) {
+            CarbonDioxideSensor co2Sensor = (CarbonDioxideSensor) sensor;
+            output.writeVarint(co2Sensor.getIdealValue());
+            output.writeVarint(co2Sensor.getVariationLimit());
+        } else if (sensor instanceof OccupancySensor) {
+            output.writeVarint(((OccupancySensor) sensor).getCapacity());
+        }
+    }
+
+    /**
+     * Reads a building and all of its floors.
+     *
+     * @param input input to read from
+     * @return building that is read
+     * @throws IOException if an IOException is encountered when reading
+     * @throws FileFormatException if the building is invalid
+     */
+    private static Building readBuilding(SnapshotInput input)
+            throws IOException, FileFormatException {
+        Building building = new Building(input.readString());
+        int numFloors = input.readCount();
+        for (int i = 0; i < numFloors; i++) {
+            try {
+                building.addFloor(readFloor(input));
+            } catch (DuplicateFloorException | NoFloorBelowException
+                    | FloorTooSmallException | IllegalArgumentException e) {
+                throw new FileFormatException("Invalid floor", e);
+            }
+        }
+        return building;
+    }
+
+    /**
+     * Reads a floor, its rooms, and its maintenance schedule.
+     *
+     * @param input input to read from
+     * @return floor that is read
+     * @throws IOException if an IOException is encountered when reading
+     * @throws FileFormatException if the floor is invalid
+     */
+    private static Floor readFloor(SnapshotInput input)
+            throws IOException, FileFormatException {
+        int floorNumber = input.readSignedVarint();
+        double width = input.readDouble();
+        double length = input.readDouble();
+        Floor floor = new Floor(floorNumber, width, length);
+        try {
+            int numRooms = input.readCount();
+            for (int i = 0; i < numRooms; i++) {
+                floor.addRoom(readRoom(input));
+            }
+            int scheduleLength = input.readCount();
+            if (scheduleLength > 0) {
+                List<Room> roomOrder = new ArrayList<>(scheduleLength);
+                for (int i = 0; i < scheduleLength; i++) {
+                    roomOrder.add(floor.getRoomByNumber(
+                            input.readSignedVarint()));
+                }
+                floor.createMaintenanceSchedule(roomOrder);
+            }
+        } catch (DuplicateRoomException | InsufficientSpaceException
+                | IllegalArgumentException e) {
+            throw new FileFormatException("Invalid room", e);
+        }
+        return floor;
+    }
+
+    /**
+     * Reads a room, its hazard evaluator, and its sensors.
+     *
+     * @param input input to read from
+     * @return room that is read
+     * @throws IOException if an IOException is encountered when reading
+     * @throws FileFormatException if the room is invalid
+     */
+    private static Room readRoom(SnapshotInput input)
+            throws IOException, FileFormatException {
+        int roomNumber = input.readSignedVarint();
+        int type = input.readVarint();
+        if (type >= RoomType.values().length) {
+            throw new FileFormatException("Invalid room type: " + type);
+        }
+        Room room = new Room(roomNumber, RoomType.values()[type],
+                input.readDouble());
+
+        int evaluator = input.readVarint();
+        if (evaluator > WEIGHTING_BASED) {
+            throw new FileFormatException("Invalid evaluator: " + evaluator);
+        }
+        int numSensors = input.readCount();
+        List<HazardSensor> sensors = new ArrayList<>(numSensors);
+        Map<HazardSensor, Integer> weightings = new HashMap<>();
+        try {
+            for (int i = 0; i < numSensors; i++) {
+                TimedSensor sensor = readSensor(input);
+                room.addSensor(sensor);
+                sensors.add((HazardSensor) sensor);
+                if (evaluator == WEIGHTING_BASED) {
+                    weightings.put((HazardSensor) sensor, input.readVarint());
+                }
+            }
+            if (evaluator == RULE_BASED) {
+                room.setHazardEvaluator(new RuleBasedHazardEvaluator(sensors));
+            } else if (evaluator == WEIGHTING_BASED) {
+                room.setHazardEvaluator(
+                        new WeightingBasedHazardEvaluator(weightings));
+            }
+        } catch (DuplicateSensorException | IllegalArgumentException e) {
+            throw new FileFormatException("Invalid sensor", e);
+        }
+        return room;
+    }
+
+    /**
+     * Reads a sensor, its readings, and any sensor-specific values.
+     *
+     * @param input input to read from
+     * @return sensor that is read
+     * @throws IOException if an IOException is encountered when reading
+     * @throws FileFormatException if the sensor is invalid
+     */
+    private static TimedSensor readSensor(SnapshotInput input)
+            throws IOException, FileFormatException {
+        int type = input.readVarint();
+        int updateFrequency = input.readVarint();
+        int[] readings = new int[input.readCount()];
+        for (int i = 0; i < readings.length; i++) {
+            readings[i] = input.readVarint();
+        }
+
+        switch (type) {
+            case CARBON_DIOXIDE:
+                int idealValue = input.readVarint();
+                int variationLimit = input.readVarint();
+                return new CarbonDioxideSensor(readings, updateFrequency,
+                        idealValue, variationLimit);
+            case NOISE:
+                return new NoiseSensor(readings, updateFrequency);
+            case OCCUPANCY:
+                return new OccupancySensor(readings, updateFrequency,
+                        input.readVarint());
+            case TEMPERATURE:
+                return new TemperatureSensor(readings);
+            default:
+                throw new FileFormatException("Invalid sensor type: " + type);
+        }
+    }
+
+    /**
+     * Buffered output which encodes the primitive values of a snapshot.
+     */
+    private static class SnapshotOutput {
+        /**
+         * Stream to which the buffer is flushed.
+         */
+        private final OutputStream out;
+
+        /**
+         * Bytes waiting to be written to the stream.
+         */
+        private final byte[] buffer;
+
+        /**
+         * Number of bytes in the buffer.
+         */
+        private int position;
+
+        /**
+         * Creates a new output which writes to the given stream.
+         *
+         * @param out stream to write to
+         */
+        private SnapshotOutput(OutputStream out) {
+            this.out = out;
+            this.buffer = new byte[BUFFER_SIZE];
+        }
+
+        /**
+         * Writes a single byte.
+         *
+         * @param b byte to write
+         * @throws IOException if the buffer could not be flushed
+         */
+        private void writeByte(int b) throws IOException {
+            if (this.position == this.buffer.length) {
+                this.out.write(this.buffer, 0, this.position);
+                this.position = 0;
+            }
+            this.buffer[this.position++] = (byte) b;
+        }
+
+        /**
+         * Writes a non-negative integer in as few bytes as possible, seven
+         * bits at a time.
+         *
+         * @param value value to write
+         * @throws IOException if the buffer could not be flushed
+         */
+        private void writeVarint(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                this.writeByte((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            this.writeByte(value);
+        }
+
+        /**
+         * Writes an integer which may be negative, using zig-zag encoding so
+         * that small negative values are also written in few bytes.
+         *
+         * @param value value to write
+         * @throws IOException if the buffer could not be flushed
+         */
+        private void writeSignedVarint(int value) throws IOException {
+            this.writeVarint((value << 1) ^ (value >> 31));
+        }
+
+        /**
+         * Writes a fixed-width, big-endian integer.
+         *
+         * @param value value to write
+         * @throws IOException if the buffer could not be flushed
+         */
+        private void writeInt(int value) throws IOException {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                this.writeByte(value >>> shift);
+            }
+        }
+
+        /**
+         * Writes the exact bits of a double.
+         *
+         * @param value value to write
+         * @throws IOException if the buffer could not be flushed
+         */
+        private void writeDouble(double value) throws IOException {
+            long bits = Double.doubleToLongBits(value);
+            this.writeInt((int) (bits >>> 32));
+            this.writeInt((int) bits);
+        }
+
+        /**
+         * Writes a string as its length in bytes followed by its UTF-8
+         * encoding.
+         *
+         * @param value string to write
+         * @throws IOException if the buffer could not be flushed
+         */
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            this.writeVarint(bytes.length);
+            for (byte b : bytes) {
+                this.writeByte(b);
+            }
+        }
+
+        /**
+         * Writes any buffered bytes to the stream, and flushes the stream.
+         *
+         * @throws IOException if the stream could not be written to
+         */
+        private void flush() throws IOException {
+            this.out.write(this.buffer, 0, this.position);
+            this.position = 0;
+            this.out.flush();
+        }
+    }
+
+    /**
+     * Buffered input which decodes the primitive values of a snapshot.
+     */
+    private static class SnapshotInput {
+        /**
+         * Stream from which the buffer is filled.
+         */
+        private final InputStream in;
+
+        /**
+         * Bytes read from the stream.
+         */
+        private final byte[] buffer;
+
+        /**
+         * Index of the next unread byte in the buffer.
+         */
+        private int position;
+
+        /**
+         * Number of valid bytes in the buffer.
+         */
+        private int limit;
+
+        /**
+         * Creates a new input which reads from the given stream.
+         *
+         * @param in stream to read from
+         */
+        private SnapshotInput(InputStream in) {
+            this.in = in;
+            this.buffer = new byte[BUFFER_SIZE];
+        }
+
+        /**
+         * Reads a single byte.
+         *
+         * @return byte that was read, as an unsigned value
+         * @throws IOException if the stream could not be read
+         * @throws FileFormatException if the end of the stream was reached
+         */
+        private int readByte() throws IOException, FileFormatException {
+            if (this.position == this.limit) {
+                int read = this.in.read(this.buffer);
+                if (read <= 0) {
+                    throw new FileFormatException("Unexpected end of "
+                            + "snapshot");
+                }
+                this.position = 0;
+                this.limit = read;
+            }
+            return this.buffer[this.position++] & 0xFF;
+        }
+
+        /**
+         * Reads an integer written by
+         * {@link SnapshotOutput#writeVarint(int)}.
+         *
+         * @return value that was read
+         * @throws IOException if the stream could not be read
+         * @throws FileFormatException if the value is malformed
+         */
+        private int readVarint() throws IOException, FileFormatException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = this.readByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new FileFormatException("Malformed integer in snapshot");
+        }
+
+        /**
+         * Reads a non-negative count of elements.
+         *
+         * @return count that was read
+         * @throws IOException if the stream could not be read
+         * @throws FileFormatException if the count is negative
+         */
+        private int readCount() throws IOException, FileFormatException {
+            int count = this.readVarint();
+            if (count < 0) {
+                throw new FileFormatException("Invalid count in snapshot");
+            }
+            return count;
+        }
+
+        /**
+         * Reads an integer written by
+         * {@link SnapshotOutput#writeSignedVarint(int)}.
+         *
+         * @return value that was read
+         * @throws IOException if the stream could not be read
+         * @throws FileFormatException if the value is malformed
+         */
+        private int readSignedVarint() throws IOException,
+                FileFormatException {
+            int value = this.readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * Reads a fixed-width, big-endian integer.
+         *
+         * @return value that was read
+         * @throws IOException if the stream could not be read
+         * @throws FileFormatException if the end of the stream was reached
+         */
+        private int readInt() throws IOException, FileFormatException {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value = (value << 8) | this.readByte();
+            }
+            return value;
+        }
+
+        /**
+         * Reads a double written by {@link SnapshotOutput#writeDouble}.
+         *
+         * @return value that was read
+         * @throws IOException if the stream could not be read
+         * @throws FileFormatException if the end of the stream was reached
+         */
+        private double readDouble() throws IOException, FileFormatException {
+            long high = this.readInt() & 0xFFFFFFFFL;
+            long low = this.readInt() & 0xFFFFFFFFL;
+            return Double.longBitsToDouble((high << 32) | low);
+        }
+
+        /**
+         * Reads a string written by
+         * {@link SnapshotOutput#writeString(String)}.
+         *
+         * @return string that was read
+         * @throws IOException if the stream could not be read
+         * @throws FileFormatException if the end of the stream was reached
+         */
+        private String readString() throws IOException, FileFormatException {
+            byte[] bytes = new byte[this.readCount()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = (byte) this.readByte();
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
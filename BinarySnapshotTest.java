@@ -0,0 +1,94 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.room.Room;
+import bms.room.RoomType;
+import bms.sensors.*;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class BinarySnapshotTest {
+    private List<Building> buildings;
+
+    @Before
+    public void setUp() throws Exception {
+        buildings = new ArrayList<>();
+        Building building = new Building("Snapshot Building");
+        Floor floor1 = new Floor(1, 10, 10);
+        Floor floor2 = new Floor(2, 10, 8.5);
+        Room room1 = new Room(101, RoomType.STUDY, 20);
+        Room room2 = new Room(102, RoomType.OFFICE, 15.25);
+        Room room3 = new Room(201, RoomType.LABORATORY, 30);
+        floor1.addRoom(room1);
+        floor1.addRoom(room2);
+        floor2.addRoom(room3);
+
+        room1.addSensor(new OccupancySensor(new int[]{13, 24, 28, 15, 6}, 4,
+                30));
+        NoiseSensor noiseSensor = new NoiseSensor(new int[]{55, 62, 69}, 3);
+        CarbonDioxideSensor co2Sensor = new CarbonDioxideSensor(
+                new int[]{700, 1500, 300}, 2, 600, 250);
+        room3.addSensor(noiseSensor);
+        room3.addSensor(co2Sensor);
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(noiseSensor);
+        sensors.add(co2Sensor);
+        room3.setHazardEvaluator(new RuleBasedHazardEvaluator(sensors));
+
+        List<Room> schedule = new ArrayList<>();
+        schedule.add(room2);
+        schedule.add(room1);
+        floor1.createMaintenanceSchedule(schedule);
+
+        building.addFloor(floor1);
+        building.addFloor(floor2);
+        buildings.add(building);
+        buildings.add(new Building("Empty Building"));
+    }
+
+    private List<Building> roundTrip(List<Building> buildings)
+            throws IOException, FileFormatException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinarySnapshot.write(out, buildings);
+        return BinarySnapshot.read(new ByteArrayInputStream(
+                out.toByteArray()));
+    }
+
+    @Test
+    public void roundTripEquals() throws Exception {
+        Assert.assertEquals(buildings, roundTrip(buildings));
+    }
+
+    @Test
+    public void roundTripEncodesIdentically() throws Exception {
+        List<Building> loaded = roundTrip(buildings);
+        for (int i = 0; i < buildings.size(); i++) {
+            Assert.assertEquals(buildings.get(i).encode(),
+                                loaded.get(i).encode());
+        }
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void invalidMagic() throws Exception {
+        BinarySnapshot.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4,
+                1, 0}));
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void truncated() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinarySnapshot.write(out, buildings);
+        byte[] bytes = out.toByteArray();
+        BinarySnapshot.read(new ByteArrayInputStream(bytes, 0,
+                bytes.length / 2));
+    }
+}
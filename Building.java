@@ -9,10 +9,11 @@ import bms.room.RoomType;
 import bms.util.Encodable;
 import bms.util.FireDrill;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.StringJoiner;
 
 /**
  * Represents a building of floors, which in turn, contain rooms.
@@ -33,9 +34,17 @@ public class Building implements FireDrill, Encodable {
 
     /**
      * List of floors tracked by the building.
+     * <p>
+     * Floors are always numbered contiguously from 1, so the floor with
+     * floor number n is stored at index n - 1.
      */
     private List<Floor> floors;
 
+    /**
+     * Read-only view of the list of floors.
+     */
+    private List<Floor> floorsView;
+
     /**
      * Creates a new empty building with no rooms.
      *
@@ -45,6 +54,7 @@ public class Building implements FireDrill, Encodable {
     public Building(String name) {
         this.name = name;
         this.floors = new ArrayList<>();
+        this.floorsView = Collections.unmodifiableList(this.floors);
     }
 
     /**
@@ -70,6 +80,20 @@ public class Building implements FireDrill, Encodable {
         return new ArrayList<>(this.floors);
     }
 
+    /**
+     * Returns a read-only view of the floors in this building, in order of
+     * floor number.
+     * <p>
+     * Unlike {@link #getFloors()}, the list is not copied, so changes to the
+     * building's floors are reflected in the returned list. This is useful for
+     * iterating over the floors without allocating a new list.
+     *
+     * @return unmodifiable view of all floors in the building
+     */
+    public List<Floor> getFloorsView() {
+        return this.floorsView;
+    }
+
     /**
      * Searches for the floor with the specified floor number.
      * <p>
@@ -81,12 +105,10 @@ public class Building implements FireDrill, Encodable {
      * @ass1
      */
     public Floor getFloorByNumber(int floorNumber) {
-        for (Floor floor : this.floors) {
-            if (floor.getFloorNumber() == floorNumber) {
-                return floor;
-            }
+        if (floorNumber < 1 || floorNumber > this.floors.size()) {
+            return null;
         }
-        return null;
+        return this.floors.get(floorNumber - 1);
     }
 
     /**
@@ -215,7 +237,7 @@ public class Building implements FireDrill, Encodable {
         }
         boolean hasRooms = false;
         for (Floor floor : this.floors) {
-            if (!floor.getRooms().isEmpty()) {
+            if (!floor.getRoomsView().isEmpty()) {
                 hasRooms = true;
             }
         }
@@ -252,7 +274,7 @@ public class Building implements FireDrill, Encodable {
         }
         Building building = (Building) obj;
         return this.name.equals(building.getName())
-                && this.floors.size() == building.getFloors().size()
+                && this.floors.size() == building.floors.size()
                 && new HashSet<>(this.floors)
                 .equals(new HashSet<>(building.floors));
     }
@@ -294,12 +316,20 @@ public class Building implements FireDrill, Encodable {
      */
     @Override
     public String encode() {
-        StringJoiner joiner = new StringJoiner(System.lineSeparator());
-        joiner.add(this.name);
-        joiner.add(String.format("%d", this.floors.size()));
+        return Encodable.encodeToString(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        out.append(this.name);
+        out.append(System.lineSeparator());
+        out.append(String.format("%d", this.floors.size()));
         for (Floor floor : this.floors) {
-            joiner.add(floor.encode());
+            out.append(System.lineSeparator());
+            floor.encodeTo(out);
         }
-        return joiner.toString();
     }
 }
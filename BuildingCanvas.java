@@ -5,6 +5,7 @@ import bms.floor.Floor;
 import bms.room.Room;
 import bms.sensors.OccupancySensor;
 import bms.sensors.Sensor;
+import bms.sensors.SensorKind;
 import javafx.geometry.VPos;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
@@ -13,6 +14,7 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.StringJoiner;
 
@@ -135,7 +137,8 @@ public class BuildingCanvas extends Canvas {
         final double roomPadding = 5;
         double x, y;
 
-        int numFloors = building.getFloors().size();
+        List<Floor> floors = building.getFloorsView();
+        int numFloors = floors.size();
         if (numFloors == 0) {
             return;
         }
@@ -148,8 +151,8 @@ public class BuildingCanvas extends Canvas {
         // at 0 but is unused
         double minFloorArea = 0;
         boolean buildingHasRooms = false;
-        for (Floor floor : building.getFloors()) {
-            for (Room room : floor.getRooms()) {
+        for (Floor floor : floors) {
+            for (Room room : floor.getRoomsView()) {
                 buildingHasRooms = true;
                 if (room.getArea() < minRoomArea) {
                     minRoomArea = room.getArea();
@@ -162,7 +165,7 @@ public class BuildingCanvas extends Canvas {
         double firstFloorArea = building.getFloorByNumber(1).calculateArea();
         // Draw each floor
         for (int i = 0; i < numFloors; ++i) {
-            Floor floor = building.getFloors().get(i);
+            Floor floor = floors.get(i);
             double floorArea = floor.calculateArea();
             double relativeFloorArea = floorArea / firstFloorArea;
             double floorOriginX = startX;
@@ -190,10 +193,11 @@ public class BuildingCanvas extends Canvas {
                     x, y, floorDrawWidth, FLOOR_HEIGHT), floor);
 
             // Draw each room on the current floor
-            int numRooms = floor.getRooms().size();
+            List<Room> rooms = floor.getRoomsView();
+            int numRooms = rooms.size();
             double roomOriginX = floorOriginX;
             for (int j = 0; j < numRooms; ++j) {
-                Room room = floor.getRooms().get(j);
+                Room room = rooms.get(j);
                 double roomArea = room.getArea();
                 double roomDrawWidth = roomArea / floor.calculateArea() * floorDrawWidth;
 
@@ -233,22 +237,23 @@ public class BuildingCanvas extends Canvas {
                 joiner.add("Room #" + room.getRoomNumber());
                 joiner.add(room.getType().toString());
                 joiner.add(room.evaluateRoomState().toString());
-                Sensor tempSensor = room.getSensor("TemperatureSensor");
+                Sensor tempSensor = room.getSensor(SensorKind.TEMPERATURE);
                 if (tempSensor != null) {
                     joiner.add(String.format("%d°C",
                             tempSensor.getCurrentReading()));
                 }
-                Sensor noiseSensor = room.getSensor("NoiseSensor");
+                Sensor noiseSensor = room.getSensor(SensorKind.NOISE);
                 if (noiseSensor != null) {
                     joiner.add(String.format("%ddB",
                             noiseSensor.getCurrentReading()));
                 }
-                Sensor co2Sensor = room.getSensor("CarbonDioxideSensor");
+                Sensor co2Sensor = room.getSensor(SensorKind.CARBON_DIOXIDE);
                 if (co2Sensor != null) {
                     joiner.add(String.format("%dppm",
                             co2Sensor.getCurrentReading()));
                 }
-                OccupancySensor occupancySensor = (OccupancySensor) room.getSensor("OccupancySensor");
+                OccupancySensor occupancySensor = (OccupancySensor) room.getSensor(
+                        SensorKind.OCCUPANCY);
                 if (occupancySensor != null) {
                     joiner.add(String.format("%d/%d",
                             occupancySensor.getCurrentReading(),
@@ -307,4 +312,4 @@ public class BuildingCanvas extends Canvas {
     public double prefHeight(double v) {
         return getHeight();
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -1,9 +1,12 @@
 package bms.building;
 
+import bms.exceptions.DuplicateFloorException;
 import bms.exceptions.DuplicateRoomException;
 import bms.exceptions.DuplicateSensorException;
 import bms.exceptions.FileFormatException;
+import bms.exceptions.FloorTooSmallException;
 import bms.exceptions.InsufficientSpaceException;
+import bms.exceptions.NoFloorBelowException;
 import bms.floor.Floor;
 import bms.hazardevaluation.HazardEvaluator;
 import bms.hazardevaluation.RuleBasedHazardEvaluator;
@@ -11,10 +14,14 @@ import bms.hazardevaluation.WeightingBasedHazardEvaluator;
 import bms.room.Room;
 import bms.room.RoomType;
 import bms.sensors.*;
+import bms.util.TimedItemManager;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.FileReader;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
@@ -23,6 +30,87 @@ import java.util.*;
  */
 public class BuildingInitialiser {
 
+    /**
+     * Names of the sensor types that may appear in a save file.
+     */
+    private static final String[] SENSOR_TYPES = {"CarbonDioxideSensor",
+            "NoiseSensor", "OccupancySensor", "TemperatureSensor"};
+
+    /**
+     * Names of the hazard evaluators that may appear in a save file.
+     */
+    private static final String[] EVALUATOR_TYPES = {"RuleBased",
+            "WeightingBased"};
+
+    /**
+     * Names of the room types that may appear in a save file.
+     */
+    private static final String[] ROOM_TYPES = Arrays.stream(RoomType.values())
+            .map(RoomType::name).toArray(String[]::new);
+
+    /**
+     * Maximum number of integer fields following the readings of a sensor.
+     */
+    private static final int MAX_SENSOR_PARAMS = 3;
+
+    /**
+     * Returns the number of integer fields following the readings of a
+     * sensor of the given type. Any further fields on the sensor's line are
+     * ignored.
+     *
+     * @param sensorType simple class name of the sensor
+     * @return number of fields read for the sensor type; 0 if the type is
+     * invalid
+     */
+    private static int sensorParamCount(String sensorType) {
+        switch (sensorType) {
+            case "CarbonDioxideSensor":
+                return 3;
+            case "NoiseSensor":
+                return 1;
+            case "OccupancySensor":
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Creates a sensor of the given type from its readings and the integer
+     * fields that follow the readings in the save file.
+     *
+     * @param sensorType simple class name of the sensor
+     * @param readings sensor readings
+     * @param params the {@link #sensorParamCount(String)} integer fields
+     *               following the readings
+     * @param store store to hold the sensor, or null for a standalone sensor
+     * @return sensor that is created
+     * @throws FileFormatException if the sensor type is invalid, or the
+     * fields are invalid
+     */
+    private static TimedSensor createSensor(String sensorType, int[] readings,
+                                            int[] params, SensorStore store)
+            throws FileFormatException {
+        try {
+            switch (sensorType) {
+                case "CarbonDioxideSensor":
+                    return new CarbonDioxideSensor(store,
+                            readings, params[0], params[1], params[2]);
+                case "NoiseSensor":
+                    return new NoiseSensor(store, readings, params[0]);
+                case "OccupancySensor":
+                    return new OccupancySensor(store, readings, params[0],
+                            params[1]);
+                case "TemperatureSensor":
+                    return new TemperatureSensor(store, readings);
+                default:
+                    throw new FileFormatException();
+            }
+        } catch (IllegalArgumentException e) {
+            throw new FileFormatException();
+        }
+    }
+
     /**
      * Reads the sensor line tokens and returns the sensor if appropriate type.
      *
@@ -34,43 +122,20 @@ public class BuildingInitialiser {
     private static TimedSensor readSensorType(String[] sensorLine)
             throws FileFormatException {
 
-        int updateFreq, capacity, idealVal, varLim;
         String[] readingsString = sensorLine[1].split(",");
         int[] readings = new int[readingsString.length];
-        TimedSensor sensor;
+        int[] params = new int[MAX_SENSOR_PARAMS];
         try {
             for(int i = 0; i < readings.length; i++) {
                 readings[i] = Integer.parseInt(readingsString[i]);
             }
-
-            switch (sensorLine[0]) {
-                case "CarbonDioxideSensor":
-                    updateFreq = Integer.parseInt(sensorLine[2]);
-                    idealVal = Integer.parseInt(sensorLine[3]);
-                    varLim = Integer.parseInt(sensorLine[4]);
-                    sensor = new CarbonDioxideSensor(
-                                    readings, updateFreq, idealVal, varLim);
-                    break;
-                case "NoiseSensor":
-                    updateFreq = Integer.parseInt(sensorLine[2]);
-                    sensor = new NoiseSensor(readings, updateFreq);
-                    break;
-                case "OccupancySensor":
-                    updateFreq = Integer.parseInt(sensorLine[2]);
-                    capacity = Integer.parseInt(sensorLine[3]);
-                    sensor = new OccupancySensor(readings, updateFreq
-                            , capacity);
-                    break;
-                case "TemperatureSensor":
-                    sensor = new TemperatureSensor(readings);
-                    break;
-                default:
-                    throw new FileFormatException();
+            for (int i = 0; i < sensorParamCount(sensorLine[0]); i++) {
+                params[i] = Integer.parseInt(sensorLine[i + 2]);
             }
         } catch (Exception e) {
             throw new FileFormatException();
         }
-        return sensor;
+        return createSensor(sensorLine[0], readings, params, null);
     }
 
     /**
@@ -273,6 +338,10 @@ public class BuildingInitialiser {
      * that the data inside them is optional. See the demo save file for an
      * example (uqstlucia.txt).
      *
+     * <p>
+     * If the file cannot be loaded, every sensor and maintenance schedule
+     * created while loading it is deregistered from the timed item manager.
+     *
      * @param filename path of the file from which to load a list of buildings
      * @return a list containing all the buildings loaded from the file
      * @throws IOException if an IOException is encountered when calling any
@@ -282,6 +351,29 @@ public class BuildingInitialiser {
      */
     public static List<Building> loadBuildings(String filename)
             throws IOException, FileFormatException {
+        TimedItemManager manager = TimedItemManager.getInstance();
+        long registrationCount = manager.getRegistrationCount();
+        try {
+            return readBuildings(filename);
+        } catch (IOException | FileFormatException e) {
+            manager.deregisterTimedItemsSince(registrationCount);
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a list of buildings from a save file with the given filename.
+     *
+     * @param filename path of the file from which to load a list of buildings
+     * @return a list containing all the buildings loaded from the file
+     * @throws IOException if an IOException is encountered when calling any
+     * IO methods
+     * @throws FileFormatException if the file format of the given file is
+     * invalid
+     * @see #loadBuildings(String)
+     */
+    private static List<Building> readBuildings(String filename)
+            throws IOException, FileFormatException {
         BufferedReader reader = new BufferedReader(new FileReader(
                 "saves/" + filename));
         List<Building> buildings = new ArrayList<>();
@@ -314,4 +406,264 @@ public class BuildingInitialiser {
         }
         return buildings;
     }
+
+    /**
+     * Reads a sensor from the tokenizer, leaving any weighting and the line
+     * ending unread.
+     *
+     * @param tokenizer tokenizer to read from
+     * @param store store to hold the sensor, or null
+     * @param weighted whether the sensor's line ends with a weighting
+     * @return sensor that is read
+     * @throws IOException if an IOException is encountered when reading
+     * @throws FileFormatException if the sensor is invalid
+     */
+    private static TimedSensor readSensor(SaveFileTokenizer tokenizer,
+                                          SensorStore store, boolean weighted)
+            throws IOException, FileFormatException {
+        String sensorType = SENSOR_TYPES[tokenizer.readKeyword(SENSOR_TYPES)];
+        tokenizer.expect(':');
+        int[] readings = tokenizer.readIntList();
+        int[] params = new int[MAX_SENSOR_PARAMS];
+        for (int i = 0; i < sensorParamCount(sensorType); i++) {
+            tokenizer.expect(':');
+            params[i] = tokenizer.readInt();
+        }
+        if (tokenizer.tryConsume(':')) {
+            // loadBuildings ignores any further fields
+            tokenizer.skipFields(weighted);
+        }
+        return createSensor(sensorType, readings, params, store);
+    }
+
+    /**
+     * Reads a room and its sensors from the tokenizer.
+     *
+     * @param tokenizer tokenizer to read from
+     * @param store store to hold the room's sensors, or null
+     * @return room that is read
+     * @throws IOException if an IOException is encountered when reading
+     * @throws FileFormatException if the room or its sensors are invalid
+     */
+    private static Room readRoom(SaveFileTokenizer tokenizer,
+                                 SensorStore store)
+            throws IOException, FileFormatException {
+        int roomNum = tokenizer.readInt();
+        tokenizer.expect(':');
+        RoomType roomType = RoomType.values()[
+                tokenizer.readKeyword(ROOM_TYPES)];
+        tokenizer.expect(':');
+        double area = tokenizer.readDouble();
+        tokenizer.expect(':');
+        int numSensors = tokenizer.readInt();
+        int evaluatorType = -1;
+        if (tokenizer.tryConsume(':')) {
+            evaluatorType = tokenizer.readKeyword(EVALUATOR_TYPES);
+        }
+        tokenizer.endLine();
+
+        Room room = new Room(roomNum, roomType, area);
+        if (numSensors <= 0) {
+            return room;
+        }
+        List<HazardSensor> sensors = new ArrayList<>();
+        Map<HazardSensor, Integer> weightings = new HashMap<>();
+        try {
+            for (int i = 0; i < numSensors; i++) {
+                TimedSensor sensor = readSensor(tokenizer, store,
+                        evaluatorType == 1);
+                room.addSensor(sensor);
+                sensors.add((HazardSensor) sensor);
+                if (evaluatorType == 1) {
+                    tokenizer.expect('@');
+                    weightings.put((HazardSensor) sensor, tokenizer.readInt());
+                }
+                tokenizer.endLine();
+            }
+            if (evaluatorType == 0) {
+                room.setHazardEvaluator(new RuleBasedHazardEvaluator(sensors));
+            } else if (evaluatorType == 1) {
+                room.setHazardEvaluator(
+                        new WeightingBasedHazardEvaluator(weightings));
+            }
+        } catch (DuplicateSensorException | IllegalArgumentException e) {
+            throw new FileFormatException();
+        }
+        return room;
+    }
+
+    /**
+     * Reads a floor and its rooms from the tokenizer.
+     *
+     * @param tokenizer tokenizer to read from
+     * @param store store to hold the floor's sensors, or null
+     * @return floor that is read
+     * @throws IOException if an IOException is encountered when reading
+     * @throws FileFormatException if the floor or its rooms are invalid
+     */
+    private static Floor readFloor(SaveFileTokenizer tokenizer,
+                                   SensorStore store)
+            throws IOException, FileFormatException {
+        int floorNum = tokenizer.readInt();
+        tokenizer.expect(':');
+        double width = tokenizer.readDouble();
+        tokenizer.expect(':');
+        double length = tokenizer.readDouble();
+        tokenizer.expect(':');
+        int numRooms = tokenizer.readInt();
+        int[] roomOrder = null;
+        if (tokenizer.tryConsume(':')) {
+            roomOrder = tokenizer.readIntList();
+        }
+        tokenizer.endLine();
+
+        Floor floor = new Floor(floorNum, width, length);
+        try {
+            for (int i = 0; i < numRooms; i++) {
+                floor.addRoom(readRoom(tokenizer, store));
+            }
+            if (roomOrder != null) {
+                List<Room> rooms = new ArrayList<>();
+                for (int roomNumber : roomOrder) {
+                    rooms.add(floor.getRoomByNumber(roomNumber));
+                }
+                floor.createMaintenanceSchedule(rooms);
+            }
+        } catch (DuplicateRoomException | InsufficientSpaceException
+                | IllegalArgumentException e) {
+            throw new FileFormatException();
+        }
+        return floor;
+    }
+
+    /**
+     * Loads a list of buildings from a save file with the given filename,
+     * in a single streaming pass over the file.
+     * <p>
+     * Accepts the same save file format and builds the same buildings as
+     * {@link #loadBuildings(String)}, but parses numbers directly from a
+     * buffer read from a file channel rather than splitting each line into
+     * strings. This is considerably faster, and produces far less garbage,
+     * for save files containing large numbers of sensor readings.
+     *
+     * @param filename path of the file from which to load a list of buildings
+     * @return a list containing all the buildings loaded from the file
+     * @throws IOException if an IOException is encountered when calling any
+     * IO methods
+     * @throws FileFormatException if the file format of the given file is
+     * invalid
+     */
+    public static List<Building> loadBuildingsStreaming(String filename)
+            throws IOException, FileFormatException {
+        return loadBuildingsStreaming(filename, null);
+    }
+
+    /**
+     * Loads a list of buildings from a save file with the given filename,
+     * in a single streaming pass over the file, placing every sensor in the
+     * given sensor store.
+     * <p>
+     * Holding the sensors of a large model in a store packs their readings
+     * into shared arrays and advances them all in a single sweep, rather than
+     * as one timed item per sensor.
+     *
+     * <p>
+     * If the file cannot be loaded, every standalone sensor and maintenance
+     * schedule created while loading it is deregistered from the timed item
+     * manager, and every sensor added to the store while loading it is
+     * removed from the store.
+     *
+     * @param filename path of the file from which to load a list of buildings
+     * @param store store to hold all loaded sensors, or null to create
+     *              standalone sensors
+     * @return a list containing all the buildings loaded from the file
+     * @throws IOException if an IOException is encountered when calling any
+     * IO methods
+     * @throws FileFormatException if the file format of the given file is
+     * invalid
+     * @see #loadBuildingsStreaming(String)
+     */
+    public static List<Building> loadBuildingsStreaming(String filename,
+                                                        SensorStore store)
+            throws IOException, FileFormatException {
+        TimedItemManager manager = TimedItemManager.getInstance();
+        long registrationCount = manager.getRegistrationCount();
+        int storeSize = store == null ? 0 : store.size();
+        try {
+            return readBuildingsStreaming(filename, store);
+        } catch (IOException | FileFormatException e) {
+            manager.deregisterTimedItemsSince(registrationCount);
+            if (store != null) {
+                store.truncate(storeSize);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Reads a list of buildings from a save file with the given filename,
+     * in a single streaming pass over the file.
+     *
+     * @param filename path of the file from which to load a list of buildings
+     * @param store store to hold all loaded sensors, or null to create
+     *              standalone sensors
+     * @return a list containing all the buildings loaded from the file
+     * @throws IOException if an IOException is encountered when calling any
+     * IO methods
+     * @throws FileFormatException if the file format of the given file is
+     * invalid
+     * @see #loadBuildingsStreaming(String, SensorStore)
+     */
+    private static List<Building> readBuildingsStreaming(String filename,
+                                                         SensorStore store)
+            throws IOException, FileFormatException {
+        List<Building> buildings = new ArrayList<>();
+        try (SaveFileTokenizer tokenizer = new SaveFileTokenizer(
+                Paths.get("saves/" + filename))) {
+            while (!tokenizer.atEnd()) {
+                Building building = new Building(tokenizer.readLine());
+                int numFloors = tokenizer.readInt();
+                tokenizer.endLine();
+                for (int i = 1; i <= numFloors; i++) {
+                    try {
+                        building.addFloor(readFloor(tokenizer, store));
+                    } catch (DuplicateFloorException | NoFloorBelowException
+                            | FloorTooSmallException
+                            | IllegalArgumentException e) {
+                        throw new FileFormatException();
+                    }
+                }
+                buildings.add(building);
+            }
+        }
+        return buildings;
+    }
+
+    /**
+     * Saves the given list of buildings to a save file with the given
+     * filename, in the format read by {@link #loadBuildings(String)}.
+     * <p>
+     * The file contains the encoded representation of all the given
+     * buildings, joined by a line separator (see
+     * {@link System#lineSeparator()}). Each building is written incrementally
+     * using {@link Building#encodeTo(Appendable)}, so the whole file is never
+     * held in memory as a single string.
+     *
+     * @param filename path of the file to save the buildings to
+     * @param buildings buildings to be saved
+     * @throws IOException if an IOException is encountered when writing to
+     * the file
+     */
+    public static void saveBuildings(String filename, List<Building> buildings)
+            throws IOException {
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(
+                "saves/" + filename))) {
+            for (int i = 0; i < buildings.size(); i++) {
+                if (i > 0) {
+                    writer.write(System.lineSeparator());
+                }
+                buildings.get(i).encodeTo(writer);
+            }
+        }
+    }
 }
@@ -13,12 +13,38 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.StringJoiner;
 
 public class BuildingInitialiserTest {
+    /**
+     * Save file with rooms using each kind of sensor and hazard evaluator.
+     */
+    private static final String[] SAMPLE_LINES = {
+            "Working Building",
+            "3",
+            "1:10.00:10.00:2:101,102",
+            "101:STUDY:20.00:1",
+            "OccupancySensor:13,24,28,15,6:4:30",
+            "102:STUDY:15.00:1",
+            "CarbonDioxideSensor:700,1500,3000:2:600:250",
+            "2:10.00:10.00:1",
+            "201:OFFICE:50.00:2:RuleBased",
+            "NoiseSensor:55,62,69,63:3",
+            "TemperatureSensor:28,29,26,24",
+            "3:10.00:8.00:1",
+            "301:LABORATORY:30.00:2:WeightingBased",
+            "NoiseSensor:55,62,69,63:3@25",
+            "TemperatureSensor:28,29,26,24@75",
+            ""};
+
     private List<Building> buildings;
 
     @Before
@@ -240,6 +266,171 @@ public class BuildingInitialiserTest {
         Assert.assertEquals(makeBuilding(), buildings);
     }
 
+    /**
+     * Loads the given file contents with both loaders, and checks that they
+     * build the same buildings or both reject the file.
+     *
+     * @return encoded buildings, or "FileFormatException"
+     */
+    private String loadWithBothLoaders(String... lines) throws IOException {
+        Path file = writeSaveFile(lines);
+        try {
+            String filename = file.getFileName().toString();
+            String loaded = encodeLoaded(filename, false);
+            Assert.assertEquals(loaded, encodeLoaded(filename, true));
+            return loaded;
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Writes the given lines to a new save file with CRLF line endings, as
+     * written on Windows.
+     *
+     * @return path of the file, which the caller must delete
+     */
+    private static Path writeSaveFile(String... lines) throws IOException {
+        Path file = Files.createTempFile(
+                Files.createDirectories(Paths.get("saves")), "loader", ".txt");
+        Files.write(file, String.join("\r\n", lines)
+                .getBytes(StandardCharsets.US_ASCII));
+        return file;
+    }
+
+    private String encodeLoaded(String filename, boolean streaming)
+            throws IOException {
+        try {
+            List<Building> loaded = streaming
+                    ? BuildingInitialiser.loadBuildingsStreaming(filename)
+                    : BuildingInitialiser.loadBuildings(filename);
+            StringBuilder encoded = new StringBuilder();
+            for (Building building : loaded) {
+                encoded.append(building.encode()).append('\n');
+            }
+            return encoded.toString();
+        } catch (FileFormatException e) {
+            return "FileFormatException";
+        }
+    }
+
+    @Test
+    public void streamingMatchesLoadBuildingsTest() throws IOException {
+        String[] lines = SAMPLE_LINES.clone();
+        String loaded = loadWithBothLoaders(lines);
+        Assert.assertEquals(String.join("\n", lines),
+                loaded.replace(System.lineSeparator(), "\n"));
+
+        // fields beyond those used by the sensor are ignored
+        lines[10] = "TemperatureSensor:28,29,26,24:unused";
+        lines[13] = "NoiseSensor:55,62,69,63:3:unused@25";
+        Assert.assertEquals(loaded, loadWithBothLoaders(lines));
+    }
+
+    @Test
+    public void streamingRejectsMalformedSensorTest() throws IOException {
+        Assert.assertEquals("FileFormatException", loadWithBothLoaders(
+                "Broken Building",
+                "1",
+                "1:10.00:10.00:1",
+                "101:STUDY:20.00:1",
+                "NoiseSensor:55,6x,69,63:3"));
+        Assert.assertEquals("FileFormatException", loadWithBothLoaders(
+                "Broken Building",
+                "1",
+                "1:10.00:10.00:1",
+                "101:STUDY:20.00:1",
+                "CarbonDioxideSensor:400,500:1:600"));
+    }
+
+    /**
+     * Encodes a building the way {@code encode()} did before buildings could
+     * be written with {@code encodeTo(Appendable)}.
+     */
+    private static String encodeAsBefore(Building building) {
+        StringJoiner joiner = new StringJoiner(System.lineSeparator());
+        joiner.add(building.getName());
+        joiner.add(String.format("%d", building.getFloors().size()));
+        for (Floor floor : building.getFloors()) {
+            String floorLine = String.format("%d:%.2f:%.2f:%d",
+                    floor.getFloorNumber(), floor.getWidth(),
+                    floor.getLength(), floor.getRooms().size());
+            if (floor.getMaintenanceSchedule() != null) {
+                StringJoiner order = new StringJoiner(",");
+                for (Room room
+                        : floor.getMaintenanceSchedule().getRoomOrder()) {
+                    order.add(String.format("%d", room.getRoomNumber()));
+                }
+                floorLine += ":" + order;
+            }
+            joiner.add(floorLine);
+            for (Room room : floor.getRooms()) {
+                joiner.add(encodeRoomAsBefore(room));
+            }
+        }
+        return joiner.toString();
+    }
+
+    private static String encodeRoomAsBefore(Room room) {
+        StringJoiner joinerFirst = new StringJoiner(":");
+        joinerFirst.add(String.format("%d:%s:%.2f:%d", room.getRoomNumber(),
+                room.getType(), room.getArea(), room.getSensors().size()));
+        if (room.getHazardEvaluator() != null) {
+            joinerFirst.add(room.getHazardEvaluator().toString());
+        }
+        StringJoiner joiner = new StringJoiner(System.lineSeparator());
+        joiner.add(joinerFirst.toString());
+        for (int i = 0; i < room.getSensors().size(); i++) {
+            TimedSensor sensor = (TimedSensor) room.getSensors().get(i);
+            StringJoiner readings = new StringJoiner(",");
+            for (int j = 0; j < sensor.getReadingsLength(); j++) {
+                readings.add(String.valueOf(sensor.getReading(j)));
+            }
+            String line;
+            if (sensor instanceof CarbonDioxideSensor) {
+                CarbonDioxideSensor co2 = (CarbonDioxideSensor) sensor;
+                line = String.format("CarbonDioxideSensor:%s:%d:%d:%d",
+                        readings, sensor.getUpdateFrequency(),
+                        co2.getIdealValue(), co2.getVariationLimit());
+            } else if (sensor instanceof NoiseSensor) {
+                line = String.format("NoiseSensor:%s:%d", readings,
+                        sensor.getUpdateFrequency());
+            } else if (sensor instanceof OccupancySensor) {
+                line = String.format("OccupancySensor:%s:%d:%d", readings,
+                        sensor.getUpdateFrequency(),
+                        ((OccupancySensor) sensor).getCapacity());
+            } else {
+                line = String.format("TemperatureSensor:%s", readings);
+            }
+            if (room.getHazardEvaluator()
+                    instanceof WeightingBasedHazardEvaluator) {
+                line += "@" + ((WeightingBasedHazardEvaluator)
+                        room.getHazardEvaluator()).getWeightings().get(i);
+            }
+            joiner.add(line);
+        }
+        return joiner.toString();
+    }
+
+    @Test
+    public void encodeToMatchesEncodeTest() throws Exception {
+        Path file = writeSaveFile(SAMPLE_LINES);
+        try {
+            List<Building> loaded = BuildingInitialiser.loadBuildings(
+                    file.getFileName().toString());
+            Assert.assertEquals(1, loaded.size());
+            Building building = loaded.get(0);
+            StringBuilder out = new StringBuilder();
+            building.encodeTo(out);
+            Assert.assertEquals(encodeAsBefore(building), out.toString());
+            Assert.assertEquals(encodeAsBefore(building), building.encode());
+            Assert.assertEquals(String.join("\n", SAMPLE_LINES).trim(),
+                    out.toString().replace(System.lineSeparator(), "\n"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
     @After
     public void tearDown() {
         buildings = null;
@@ -0,0 +1,100 @@
+package bms.hazardevaluation;
+
+import bms.sensors.HazardSensor;
+import bms.sensors.TimedSensor;
+import bms.util.TimedItemManager;
+
+import java.util.Collection;
+
+/**
+ * A hazard evaluator which remembers the hazard level it last calculated.
+ * <p>
+ * Sensor readings only change when timed items are updated, so the hazard
+ * level is recalculated at most once per modification of the timed items
+ * (see {@link TimedItemManager#getModificationCount()}). Repeated
+ * evaluations within the same simulated minute, such as from redraws and
+ * info panels, reuse the cached value.
+ * <p>
+ * The cache is checked against the manager which updates the evaluator's
+ * sensors. If the sensors are updated by more than one manager, or none of
+ * them are timed sensors, nothing is cached.
+ */
+public abstract class CachingHazardEvaluator implements HazardEvaluator {
+    /**
+     * Number of bits used to store the hazard level in {@link #cache}.
+     */
+    private static final int LEVEL_BITS = 8;
+
+    /**
+     * Cached hazard level in the low bits, and the modification count it was
+     * calculated at in the remaining bits; -1 if nothing is cached yet.
+     * <p>
+     * Both are packed into a single field so that they are always read and
+     * written together.
+     */
+    private volatile long cache = -1;
+
+    /**
+     * Manager whose modification count the cache is checked against; null if
+     * hazard levels are not cached.
+     */
+    private final TimedItemManager manager;
+
+    /**
+     * Creates a new caching hazard evaluator for the given sensors.
+     *
+     * @param sensors sensors used in the hazard level calculation
+     */
+    protected CachingHazardEvaluator(
+            Collection<? extends HazardSensor> sensors) {
+        this.manager = managerOf(sensors);
+    }
+
+    /**
+     * Returns the manager which updates all of the given sensors.
+     *
+     * @param sensors sensors used in the hazard level calculation
+     * @return manager of every timed sensor; null if there is no timed
+     * sensor, or the sensors have different managers
+     */
+    private static TimedItemManager managerOf(
+            Collection<? extends HazardSensor> sensors) {
+        TimedItemManager manager = null;
+        for (HazardSensor sensor : sensors) {
+            if (sensor instanceof TimedSensor) {
+                TimedItemManager sensorManager =
+                        ((TimedSensor) sensor).getManager();
+                if (manager != null && manager != sensorManager) {
+                    return null;
+                }
+                manager = sensorManager;
+            }
+        }
+        return manager;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public final int evaluateHazardLevel() {
+        if (this.manager == null) {
+            return this.calculateHazardLevel();
+        }
+        long modificationCount = this.manager.getModificationCount();
+        long cached = this.cache;
+        if (cached >= 0 && (cached >>> LEVEL_BITS) == modificationCount) {
+            return (int) (cached & ((1 << LEVEL_BITS) - 1));
+        }
+        int level = this.calculateHazardLevel();
+        this.cache = (modificationCount << LEVEL_BITS) | level;
+        return level;
+    }
+
+    /**
+     * Calculates the hazard level from the current sensor readings, without
+     * consulting the cache.
+     * @return the hazard level, between 0 and 100 (inclusive)
+     */
+    protected abstract int calculateHazardLevel();
+}
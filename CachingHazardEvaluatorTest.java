@@ -0,0 +1,67 @@
+package bms.hazardevaluation;
+
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.util.TimedItem;
+import bms.util.TimedItemListener;
+import bms.util.TimedItemManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class CachingHazardEvaluatorTest {
+    private TimedItemManager manager;
+    private NoiseSensor sensor;
+
+    @Before
+    public void setUp() {
+        manager = new TimedItemManager();
+        TimedItemManager.Scope scope = manager.makeCurrent();
+        try {
+            sensor = new NoiseSensor(new int[]{55, 62, 69, 80}, 1);
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Test
+    public void cacheFollowsManagerOfSensors() {
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(sensor);
+        // created outside the scope the sensor was created in
+        HazardEvaluator evaluator = new RuleBasedHazardEvaluator(sensors);
+        int initial = evaluator.evaluateHazardLevel();
+        manager.elapseOneMinute();
+        Assert.assertEquals(sensor.getHazardLevel(),
+                evaluator.evaluateHazardLevel());
+        Assert.assertTrue(initial != evaluator.evaluateHazardLevel());
+    }
+
+    @Test
+    public void listenersSeeChangedLevel() {
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(sensor);
+        HazardEvaluator evaluator = new RuleBasedHazardEvaluator(sensors);
+        List<Integer> seen = new ArrayList<>();
+        List<Integer> expected = new ArrayList<>();
+        TimedItemListener listener = new TimedItemListener() {
+            @Override
+            public void itemChanged(TimedItem item) {
+                expected.add(sensor.getHazardLevel());
+                seen.add(evaluator.evaluateHazardLevel());
+            }
+        };
+        manager.addListener(listener);
+        manager.setEventDriven(true);
+        for (int minute = 0; minute < 4; minute++) {
+            // cache the level before the sensor changes
+            evaluator.evaluateHazardLevel();
+            manager.elapseOneMinute();
+        }
+        Assert.assertEquals(4, seen.size());
+        Assert.assertEquals(expected, seen);
+    }
+}
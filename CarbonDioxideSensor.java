@@ -1,5 +1,7 @@
 package bms.sensors;
 
+import java.io.IOException;
+
 /**
  * A sensor that measures levels of carbon dioxide (CO2) in the air, in parts
  * per million (ppm).
@@ -21,6 +23,18 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor
      */
     private int variationLimit;
 
+    /**
+     * Hazard level for each sensor reading, indexed like the readings; null
+     * if the readings are held off-heap.
+     */
+    private byte[] hazardLevels;
+
+    /**
+     * Comfort level for each sensor reading, indexed like the readings; null
+     * if the readings are held off-heap.
+     */
+    private byte[] comfortLevels;
+
     /**
      * Creates a new carbon dioxide sensor with the given sensor readings,
      * update frequency, ideal CO2 value and acceptable variation limit.
@@ -47,8 +61,75 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor
     public CarbonDioxideSensor(int[] sensorReadings, int updateFrequency,
                                int idealValue, int variationLimit)
             throws IllegalArgumentException {
-        super(sensorReadings, updateFrequency);
+        this(null, sensorReadings, updateFrequency, idealValue,
+                variationLimit);
+    }
+
+    /**
+     * Creates a new carbon dioxide sensor held in the given sensor store.
+     *
+     * @param store store to hold the sensor's state, or null
+     * @param sensorReadings array of CO2 sensor readings <b>in ppm</b>
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param idealValue ideal CO2 value in ppm
+     * @param variationLimit acceptable range above and below ideal value in
+     *                       ppm
+     * @throws IllegalArgumentException if idealValue &lt;= 0;
+     * or if variationLimit &lt;= 0; or if (idealValue - variationLimit)
+     * &lt; 0
+     * @see TimedSensor#TimedSensor(SensorStore, int[], int)
+     */
+    public CarbonDioxideSensor(SensorStore store, int[] sensorReadings,
+                               int updateFrequency, int idealValue,
+                               int variationLimit)
+            throws IllegalArgumentException {
+        super(store, sensorReadings, updateFrequency);
+        try {
+            this.initialise(idealValue, variationLimit);
+        } catch (IllegalArgumentException e) {
+            this.releaseStoreSlot();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a new carbon dioxide sensor whose readings are read from the
+     * given sensor trace.
+     *
+     * @param trace trace holding the sensor readings <b>in ppm</b>
+     * @param traceIndex index of the sensor within the trace
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param idealValue ideal CO2 value in ppm
+     * @param variationLimit acceptable range above and below ideal value in
+     *                       ppm
+     * @throws IllegalArgumentException if idealValue &lt;= 0;
+     * or if variationLimit &lt;= 0; or if (idealValue - variationLimit)
+     * &lt; 0
+     * @see TimedSensor#TimedSensor(SensorTrace, int, int)
+     */
+    public CarbonDioxideSensor(SensorTrace trace, int traceIndex,
+                               int updateFrequency, int idealValue,
+                               int variationLimit)
+            throws IllegalArgumentException {
+        super(trace, traceIndex, updateFrequency);
+        this.initialise(idealValue, variationLimit);
+    }
 
+    /**
+     * Sets the ideal value and variation limit of the sensor and creates the
+     * hazard and comfort level tables.
+     *
+     * @param idealValue ideal CO2 value in ppm
+     * @param variationLimit acceptable range above and below ideal value in
+     *                       ppm
+     * @throws IllegalArgumentException if idealValue &lt;= 0;
+     * or if variationLimit &lt;= 0; or if (idealValue - variationLimit)
+     * &lt; 0
+     */
+    private void initialise(int idealValue, int variationLimit)
+            throws IllegalArgumentException {
         if (idealValue <= 0) {
             throw new IllegalArgumentException("Ideal CO2 value must be > 0");
         }
@@ -64,6 +145,9 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor
 
         this.idealValue = idealValue;
         this.variationLimit = variationLimit;
+        this.hazardLevels =
+                this.createLevelTable(CarbonDioxideSensor::hazardLevelOf);
+        this.comfortLevels = this.createLevelTable(this::comfortLevelOf);
     }
 
     /**
@@ -110,30 +194,62 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor
      */
     @Override
     public int getHazardLevel() {
-        final int currentReading = this.getCurrentReading();
-        if (currentReading < 1000) {
+        if (this.hazardLevels == null) {
+            return hazardLevelOf(this.getCurrentReading());
+        }
+        return this.hazardLevels[this.getCurrentIndex()];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] getHazardLevelTable() {
+        return this.hazardLevels;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getComfortLevel() {
+        if (this.comfortLevels == null) {
+            return comfortLevelOf(this.getCurrentReading());
+        }
+        return this.comfortLevels[this.getCurrentIndex()];
+    }
+
+    /**
+     * Calculates the hazard level for the given reading.
+     *
+     * @param reading carbon dioxide level in parts per million
+     * @return hazard level, as described in {@link #getHazardLevel()}
+     */
+    private static int hazardLevelOf(int reading) {
+        if (reading < 1000) {
             return 0;
         }
-        if (currentReading < 2000) {
+        if (reading < 2000) {
             return 25;
         }
-        if (currentReading < 5000) {
+        if (reading < 5000) {
             return 50;
         }
         return 100;
     }
 
     /**
-     * {@inheritDoc}
+     * Calculates the comfort level for the given reading.
+     *
+     * @param reading carbon dioxide level in parts per million
+     * @return comfort level, as described in {@link #getComfortLevel()}
      */
-    @Override
-    public int getComfortLevel() {
-        final int currentReading = this.getCurrentReading();
-        int difference = Math.abs(this.getIdealValue() - currentReading);
-        if (difference >= this.getVariationLimit()) {
+    private int comfortLevelOf(int reading) {
+        int difference = Math.abs(this.idealValue - reading);
+        if (difference >= this.variationLimit) {
             return 0;
         } else {
-            double ratio = ((double) difference) / this.getVariationLimit();
+            double ratio = ((double) difference) / this.variationLimit;
             double ratioPct = 100 * ratio;
             return (int) Math.round(100 - ratioPct);
         }
@@ -191,9 +307,10 @@ public class CarbonDioxideSensor extends TimedSensor implements HazardSensor
      * {@inheritDoc}
      */
     @Override
-    public String encode() {
-        return String.format("CarbonDioxideSensor:%s:%d:%d:%d",
-                             super.encode(), this.getUpdateFrequency(),
-                             this.idealValue, this.variationLimit);
+    public void encodeTo(Appendable out) throws IOException {
+        out.append("CarbonDioxideSensor:");
+        super.encodeTo(out);
+        out.append(String.format(":%d:%d:%d", this.getUpdateFrequency(),
+                                 this.idealValue, this.variationLimit));
     }
 }
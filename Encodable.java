@@ -1,5 +1,8 @@
 package bms.util;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 /**
  * A type that can be encoded to a machine-readable string representation,
  * useful for saving objects to files.
@@ -11,4 +14,41 @@ public interface Encodable {
      * @return encoded String representation
      */
     String encode();
+
+    /**
+     * Appends the String representation of the current state of this object
+     * to the given destination.
+     * <p>
+     * The characters appended must be identical to those returned by
+     * {@link #encode()}. Implementations should override this method to write
+     * their representation incrementally, rather than building it as a single
+     * String first.
+     *
+     * @param out destination to append the encoded representation to
+     * @throws IOException if an IOException is encountered when appending
+     */
+    default void encodeTo(Appendable out) throws IOException {
+        out.append(this.encode());
+    }
+
+    /**
+     * Returns the String representation of the given object, as appended by
+     * its {@link #encodeTo(Appendable)} method.
+     * <p>
+     * This is useful for implementing {@link #encode()} in classes which
+     * override {@link #encodeTo(Appendable)}.
+     *
+     * @param encodable object to encode
+     * @return encoded String representation
+     */
+    static String encodeToString(Encodable encodable) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            encodable.encodeTo(builder);
+        } catch (IOException e) {
+            // appending to a StringBuilder never throws an IOException
+            throw new UncheckedIOException(e);
+        }
+        return builder.toString();
+    }
 }
@@ -8,10 +8,11 @@ import bms.room.RoomType;
 import bms.util.Encodable;
 import bms.util.FireDrill;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.StringJoiner;
 
 /**
  * Represents a floor of a building.
@@ -35,6 +36,23 @@ public class Floor implements FireDrill, Encodable {
      */
     private List<Room> rooms;
 
+    /**
+     * Index of the rooms on the floor level by room number. Always contains
+     * exactly the rooms in {@link #rooms}.
+     */
+    private RoomIndex roomIndex;
+
+    /**
+     * Read-only view of the list of rooms.
+     */
+    private List<Room> roomsView;
+
+    /**
+     * Total area of all rooms on the floor, in square metres. Kept up to
+     * date as rooms are added.
+     */
+    private double occupiedArea;
+
     /**
      * Width of the floor in metres.
      */
@@ -75,6 +93,8 @@ public class Floor implements FireDrill, Encodable {
         this.length = length;
 
         this.rooms = new ArrayList<>();
+        this.roomIndex = new RoomIndex();
+        this.roomsView = Collections.unmodifiableList(this.rooms);
         this.maintenanceSchedule = null;
     }
 
@@ -121,6 +141,20 @@ public class Floor implements FireDrill, Encodable {
         return new ArrayList<>(this.rooms);
     }
 
+    /**
+     * Returns a read-only view of the rooms on this floor, in the order they
+     * were added.
+     * <p>
+     * Unlike {@link #getRooms()}, the list is not copied, so changes to the
+     * floor's rooms are reflected in the returned list. This is useful for
+     * iterating over the rooms without allocating a new list.
+     *
+     * @return unmodifiable view of all rooms on the floor
+     */
+    public List<Room> getRoomsView() {
+        return this.roomsView;
+    }
+
     /**
      * Returns width of the floor.
      *
@@ -161,12 +195,7 @@ public class Floor implements FireDrill, Encodable {
      * @ass1
      */
     public Room getRoomByNumber(int roomNumber) {
-        for (Room room : this.rooms) {
-            if (room.getRoomNumber() == roomNumber) {
-                return room;
-            }
-        }
-        return null;
+        return this.roomIndex.get(roomNumber);
     }
 
     /**
@@ -215,16 +244,15 @@ public class Floor implements FireDrill, Encodable {
     /**
      * Calculates the area of the floor which is currently occupied by all the
      * rooms on the floor.
+     * <p>
+     * The total is maintained as rooms are added, so this runs in constant
+     * time regardless of the number of rooms.
      *
      * @return area of the floor that is currently occupied, in square metres
      * @ass1
      */
-    public float occupiedArea() {
-        float area = 0;
-        for (Room room : rooms) {
-            area += room.getArea();
-        }
-        return area;
+    public double occupiedArea() {
+        return this.occupiedArea;
     }
 
     /**
@@ -255,15 +283,18 @@ public class Floor implements FireDrill, Encodable {
                             + " is already taken on this floor.");
         }
 
-        if ((this.occupiedArea() + newRoom.getArea()) > this.calculateArea()) {
+        double floorArea = this.calculateArea();
+        if ((this.occupiedArea + newRoom.getArea()) > floorArea) {
             throw new InsufficientSpaceException("Insufficient space to add "
-                    + "room. Floor area:" + this.calculateArea()
-                    + "m^2, Occupied area: " + this.occupiedArea()
+                    + "room. Floor area:" + floorArea
+                    + "m^2, Occupied area: " + this.occupiedArea
                     + "m^2, This room: " + newRoom.getArea() + "m^2");
         }
 
         // No problems, so add room to the list of rooms
         rooms.add(newRoom);
+        roomIndex.put(newRoom.getRoomNumber(), newRoom);
+        this.occupiedArea += newRoom.getArea();
     }
 
     /**
@@ -302,6 +333,9 @@ public class Floor implements FireDrill, Encodable {
 
     /**
      * Adds a maintenance schedule to this floor with the given room order.
+     * <p>
+     * Any existing maintenance schedule is replaced, and is deregistered from
+     * its timed item manager so that it no longer updates any rooms.
      *
      * @param roomOrder rooms on which to perform maintenance, in order
      * @throws IllegalArgumentException if the given order is null or empty,
@@ -315,7 +349,8 @@ public class Floor implements FireDrill, Encodable {
         }
         Room prev = roomOrder.get(roomOrder.size() - 1);
         for (Room room : roomOrder) {
-            if (!this.getRooms().contains(room)) {
+            if (room == null
+                    || !room.equals(this.getRoomByNumber(room.getRoomNumber()))) {
                 throw new IllegalArgumentException();
             }
             if (roomOrder.size() > 1) {
@@ -326,6 +361,7 @@ public class Floor implements FireDrill, Encodable {
             }
         }
         if (this.maintenanceSchedule != null) {
+            this.maintenanceSchedule.deregister();
             this.maintenanceSchedule.getCurrentRoom().setMaintenance(false);
         }
         this.maintenanceSchedule = new MaintenanceSchedule(roomOrder);
@@ -343,7 +379,7 @@ public class Floor implements FireDrill, Encodable {
         return this.floorNumber == floor.getFloorNumber()
                 && Math.abs(this.width - floor.getWidth()) <= 0.001
                 && Math.abs(this.length - floor.getLength()) <= 0.001
-                && this.rooms.size() == floor.getRooms().size()
+                && this.rooms.size() == floor.rooms.size()
                 && new HashSet<>(this.rooms)
                 .equals(new HashSet<>(floor.rooms));
     }
@@ -394,20 +430,129 @@ public class Floor implements FireDrill, Encodable {
      */
     @Override
     public String encode() {
-        StringJoiner joiner = new StringJoiner(System.lineSeparator());
+        return Encodable.encodeToString(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
         if (this.maintenanceSchedule == null) {
-            joiner.add(String.format("%d:%.2f:%.2f:%d", this.floorNumber,
+            out.append(String.format("%d:%.2f:%.2f:%d", this.floorNumber,
                                      this.width, this.length,
                                      this.rooms.size()));
         } else {
-            joiner.add(String.format("%d:%.2f:%.2f:%d:%s", this.floorNumber,
+            out.append(String.format("%d:%.2f:%.2f:%d:%s", this.floorNumber,
                                      this.width, this.length,
                                      this.rooms.size(),
                                      this.maintenanceSchedule.encode()));
         }
         for (Room room : this.rooms) {
-            joiner.add(room.encode());
+            out.append(System.lineSeparator());
+            room.encodeTo(out);
+        }
+    }
+
+    /**
+     * Hash table mapping room numbers to rooms, using open addressing so
+     * that room numbers are stored as primitive ints.
+     */
+    private static class RoomIndex {
+        /**
+         * Initial number of slots in the table. Must be a power of two.
+         */
+        private static final int INITIAL_CAPACITY = 16;
+
+        /**
+         * Room number stored in each slot.
+         */
+        private int[] keys;
+
+        /**
+         * Room stored in each slot, or null if the slot is empty.
+         */
+        private Room[] values;
+
+        /**
+         * Number of rooms stored in the table.
+         */
+        private int size;
+
+        /**
+         * Creates a new, empty room index.
+         */
+        private RoomIndex() {
+            this.keys = new int[INITIAL_CAPACITY];
+            this.values = new Room[INITIAL_CAPACITY];
+        }
+
+        /**
+         * Returns the first slot to probe for the given room number.
+         *
+         * @param roomNumber room number to look up
+         * @param mask number of slots in the table minus one
+         * @return index of the first slot to probe
+         */
+        private static int slot(int roomNumber, int mask) {
+            // spread consecutive room numbers across the table
+            int hash = roomNumber * 0x9E3779B9;
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+
+        /**
+         * Returns the room with the given room number.
+         *
+         * @param roomNumber room number to look up
+         * @return room with the given number; null if there is none
+         */
+        private Room get(int roomNumber) {
+            int mask = this.keys.length - 1;
+            for (int i = slot(roomNumber, mask); ; i = (i + 1) & mask) {
+                Room room = this.values[i];
+                if (room == null || this.keys[i] == roomNumber) {
+                    return room;
+                }
+            }
+        }
+
+        /**
+         * Adds a room to the index, growing the table if it is half full.
+         *
+         * @param roomNumber room number of the room
+         * @param room room to add
+         * @require get(roomNumber) == null
+         */
+        private void put(int roomNumber, Room room) {
+            if ((this.size + 1) * 2 > this.keys.length) {
+                int[] oldKeys = this.keys;
+                Room[] oldValues = this.values;
+                this.keys = new int[oldKeys.length * 2];
+                this.values = new Room[oldKeys.length * 2];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldValues[i] != null) {
+                        this.insert(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            this.insert(roomNumber, room);
+            this.size++;
+        }
+
+        /**
+         * Stores a room in the first empty slot for its room number.
+         *
+         * @param roomNumber room number of the room
+         * @param room room to store
+         */
+        private void insert(int roomNumber, Room room) {
+            int mask = this.keys.length - 1;
+            int i = slot(roomNumber, mask);
+            while (this.values[i] != null) {
+                i = (i + 1) & mask;
+            }
+            this.keys[i] = roomNumber;
+            this.values[i] = room;
         }
-        return joiner.toString();
     }
 }
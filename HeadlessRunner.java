@@ -0,0 +1,151 @@
+package bms;
+
+import bms.building.Building;
+import bms.building.BuildingInitialiser;
+import bms.exceptions.FileFormatException;
+import bms.sensors.SensorStore;
+import bms.util.TimedItemManager;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Entry point for running the Building Management System simulation without
+ * the GUI.
+ * <p>
+ * The simulation is advanced as fast as possible for a fixed number of
+ * minutes, optionally saving a snapshot of the buildings at regular
+ * intervals. Throughput is reported in simulated minutes per second.
+ */
+public class HeadlessRunner {
+    /**
+     * Buildings being simulated.
+     */
+    private List<Building> buildings;
+
+    /**
+     * Number of minutes between snapshots, or 0 if no snapshots are saved.
+     */
+    private int snapshotInterval;
+
+    /**
+     * Creates a new headless runner for the given buildings.
+     *
+     * @param buildings buildings to simulate
+     * @param snapshotInterval number of minutes between snapshots, or 0 to
+     *                         disable snapshots
+     * @throws IllegalArgumentException if snapshotInterval &lt; 0
+     */
+    public HeadlessRunner(List<Building> buildings, int snapshotInterval)
+            throws IllegalArgumentException {
+        if (snapshotInterval < 0) {
+            throw new IllegalArgumentException(
+                    "Snapshot interval must be >= 0");
+        }
+        this.buildings = buildings;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * Elapses the given number of minutes on all registered timed items.
+     * <p>
+     * If snapshots are enabled, the buildings are saved to
+     * "saves/snapshot-X.txt" every time the snapshot interval elapses, where
+     * X is the number of minutes elapsed so far, and the throughput since the
+     * previous snapshot is printed.
+     *
+     * @param minutes number of minutes to simulate
+     * @return overall throughput, in simulated minutes per second
+     * @throws IOException if a snapshot could not be saved
+     */
+    public double run(long minutes) throws IOException {
+        TimedItemManager manager = TimedItemManager.getInstance();
+        long start = System.nanoTime();
+        long intervalStart = start;
+
+        for (long minute = 1; minute <= minutes; minute++) {
+            manager.elapseOneMinute();
+            if (this.snapshotInterval != 0
+                    && minute % this.snapshotInterval == 0) {
+                long now = System.nanoTime();
+                System.out.printf("%d minutes elapsed (%.1f minutes/s)%n",
+                        minute, throughput(this.snapshotInterval,
+                                now - intervalStart));
+                BuildingInitialiser.saveBuildings("snapshot-" + minute
+                        + ".txt", this.buildings);
+                intervalStart = System.nanoTime();
+            }
+        }
+        return throughput(minutes, System.nanoTime() - start);
+    }
+
+    /**
+     * Calculates the number of minutes simulated per second of real time.
+     *
+     * @param minutes number of minutes simulated
+     * @param nanos real time taken, in nanoseconds
+     * @return throughput in minutes per second
+     */
+    private static double throughput(long minutes, long nanos) {
+        return minutes / (Math.max(nanos, 1) / 1e9);
+    }
+
+    /**
+     * Entry point to the headless simulation.
+     * <p>
+     * Command line arguments: filename minutes [snapshotInterval]
+     * <p>
+     * where <code>filename</code> is the path of the file containing the
+     * buildings to simulate, <code>minutes</code> is the number of minutes to
+     * simulate, and <code>snapshotInterval</code> is the number of minutes
+     * between saved snapshots (default 0, no snapshots).
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length < 2 || args.length > 3) {
+            System.out.println("Usage: filename minutes [snapshotInterval]");
+            System.exit(1);
+        }
+
+        long minutes;
+        int snapshotInterval = 0;
+        try {
+            minutes = Long.parseLong(args[1]);
+            if (args.length == 3) {
+                snapshotInterval = Integer.parseInt(args[2]);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Minutes and snapshot interval must be "
+                    + "integers");
+            System.exit(1);
+            return;
+        }
+
+        List<Building> buildings;
+        try {
+            // keep every sensor in one store so each minute is a single
+            // sweep over its columns
+            buildings = BuildingInitialiser.loadBuildingsStreaming(args[0],
+                    new SensorStore());
+        } catch (IOException | FileFormatException e) {
+            System.err.println("Error loading from file \"" + args[0]
+                    + "\". Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+            return;
+        }
+
+        try {
+            HeadlessRunner runner = new HeadlessRunner(buildings,
+                    snapshotInterval);
+            double throughput = runner.run(minutes);
+            System.out.printf("Simulated %d minutes (%.1f minutes/s)%n",
+                    minutes, throughput);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error running simulation. Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
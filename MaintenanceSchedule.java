@@ -7,6 +7,7 @@ import bms.util.TimedItem;
 import bms.util.Encodable;
 import bms.util.TimedItemManager;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.StringJoiner;
 
@@ -34,6 +35,11 @@ public class MaintenanceSchedule implements TimedItem, Encodable {
      */
     private int timeElapsed;
 
+    /**
+     * Registration of this schedule with the timed item manager.
+     */
+    private TimedItemManager.Registration registration;
+
     /**
      * Creates a new maintenance schedule for a floor's list of rooms.
      * The new maintenance schedule should be registered as a timed item with
@@ -44,7 +50,8 @@ public class MaintenanceSchedule implements TimedItem, Encodable {
      */
     public MaintenanceSchedule(List<Room> roomOrder) {
         this.roomOrder = roomOrder;
-        TimedItemManager.getInstance().registerTimedItem(this);
+        this.registration =
+                TimedItemManager.getInstance().registerTimedItem(this);
         currentRoomIndex = 0;
         currentRoom = roomOrder.get(currentRoomIndex);
         this.currentRoom.setMaintenance(true);
@@ -72,6 +79,16 @@ public class MaintenanceSchedule implements TimedItem, Encodable {
         }
     }
 
+    /**
+     * Returns a new list containing the rooms on which maintenance is
+     * performed, in order.
+     *
+     * @return new list containing the maintenance order of rooms
+     */
+    public List<Room> getRoomOrder() {
+        return new ArrayList<>(this.roomOrder);
+    }
+
     /**
      * Returns the room which is currently in the process of being maintained.
      *
@@ -81,6 +98,14 @@ public class MaintenanceSchedule implements TimedItem, Encodable {
         return this.currentRoom;
     }
 
+    /**
+     * Deregisters this schedule from the timed item manager it was
+     * registered with, so that it no longer performs maintenance.
+     */
+    void deregister() {
+        this.registration.deregister();
+    }
+
     /**
      * Returns the number of minutes that have elapsed while maintaining
      * the current room
@@ -2,6 +2,7 @@ package bms.floor;
 
 import bms.room.Room;
 import bms.room.RoomType;
+import bms.util.TimedItemManager;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -132,4 +133,74 @@ public class MaintenanceScheduleTest {
         Assert.assertEquals("101,102,103", schedule.encode());
     }
 
+    @Test
+    public void replacedScheduleIsDeregistered() throws Exception {
+        Floor floor = new Floor(2, 10, 10);
+        Room room = new Room(201, RoomType.STUDY, 10);
+        floor.addRoom(room);
+        List<Room> order = new ArrayList<>();
+        order.add(room);
+        floor.createMaintenanceSchedule(order);
+        MaintenanceSchedule replaced = floor.getMaintenanceSchedule();
+        floor.createMaintenanceSchedule(order);
+
+        TimedItemManager.getInstance().elapseOneMinute();
+        Assert.assertEquals(0, replaced.getTimeElapsedCurrentRoom());
+        Assert.assertEquals(1, floor.getMaintenanceSchedule()
+                .getTimeElapsedCurrentRoom());
+        Assert.assertFalse(TimedItemManager.getInstance()
+                .deregisterTimedItem(replaced));
+    }
+
+    @Test
+    public void duplicateRegistrationRejected() {
+        TimedItemManager manager = new TimedItemManager();
+        TimedItemManager.Registration registration =
+                manager.registerTimedItem(schedule);
+        try {
+            manager.registerTimedItem(schedule);
+            Assert.fail("Registered the same schedule twice");
+        } catch (IllegalArgumentException expected) {
+            // the first registration is the only handle to the schedule
+        }
+        Assert.assertEquals(1, manager.getRegisteredCount());
+        manager.elapseOneMinute();
+        Assert.assertEquals(1, schedule.getTimeElapsedCurrentRoom());
+        Assert.assertTrue(registration.deregister());
+        manager.elapseOneMinute();
+        Assert.assertEquals(1, schedule.getTimeElapsedCurrentRoom());
+    }
+
+    @Test
+    public void duplicateWeakRegistrationRejected() {
+        TimedItemManager manager = new TimedItemManager();
+        manager.registerTimedItemWeakly(schedule);
+        try {
+            manager.registerTimedItemWeakly(schedule);
+            Assert.fail("Registered the same schedule weakly twice");
+        } catch (IllegalArgumentException expected) {
+            // already registered weakly
+        }
+        try {
+            manager.registerTimedItem(schedule);
+            Assert.fail("Registered a weakly registered schedule");
+        } catch (IllegalArgumentException expected) {
+            // already registered weakly
+        }
+        Assert.assertEquals(1, manager.getRegisteredCount());
+        manager.elapseOneMinute();
+        Assert.assertEquals(1, schedule.getTimeElapsedCurrentRoom());
+
+        TimedItemManager other = new TimedItemManager();
+        other.registerTimedItem(schedule);
+        try {
+            other.registerTimedItemWeakly(schedule);
+            Assert.fail("Weakly registered a registered schedule");
+        } catch (IllegalArgumentException expected) {
+            // already registered
+        }
+        Assert.assertEquals(1, other.getRegisteredCount());
+        other.elapseOneMinute();
+        Assert.assertEquals(2, schedule.getTimeElapsedCurrentRoom());
+    }
 }
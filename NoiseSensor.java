@@ -1,5 +1,7 @@
 package bms.sensors;
 
+import java.io.IOException;
+
 /**
  * A sensor that measures the noise levels in a room.
  * @ass1
@@ -14,6 +16,18 @@ public class NoiseSensor extends TimedSensor implements HazardSensor,
      */
     private static final int referenceDB = 70;
 
+    /**
+     * Hazard level for each sensor reading, indexed like the readings; null
+     * if the readings are held off-heap.
+     */
+    private byte[] hazardLevels;
+
+    /**
+     * Comfort level for each sensor reading, indexed like the readings; null
+     * if the readings are held off-heap.
+     */
+    private byte[] comfortLevels;
+
     /**
      * Creates a new noise sensor with the given sensor readings and update
      * frequency.
@@ -24,7 +38,47 @@ public class NoiseSensor extends TimedSensor implements HazardSensor,
      * @ass1
      */
     public NoiseSensor(int[] sensorReadings, int updateFrequency) {
-        super(sensorReadings, updateFrequency);
+        this(null, sensorReadings, updateFrequency);
+    }
+
+    /**
+     * Creates a new noise sensor held in the given sensor store.
+     *
+     * @param store store to hold the sensor's state, or null
+     * @param sensorReadings array of noise sensor readings <b>in decibels</b>
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @see TimedSensor#TimedSensor(SensorStore, int[], int)
+     */
+    public NoiseSensor(SensorStore store, int[] sensorReadings,
+                       int updateFrequency) {
+        super(store, sensorReadings, updateFrequency);
+        this.initialise();
+    }
+
+    /**
+     * Creates a new noise sensor whose readings are read from the given
+     * sensor trace.
+     *
+     * @param trace trace holding the sensor readings <b>in decibels</b>
+     * @param traceIndex index of the sensor within the trace
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @see TimedSensor#TimedSensor(SensorTrace, int, int)
+     */
+    public NoiseSensor(SensorTrace trace, int traceIndex,
+                       int updateFrequency) {
+        super(trace, traceIndex, updateFrequency);
+        this.initialise();
+    }
+
+    /**
+     * Creates the hazard and comfort level tables.
+     */
+    private void initialise() {
+        this.hazardLevels = this.createLevelTable(NoiseSensor::hazardLevelOf);
+        this.comfortLevels =
+                this.createLevelTable(NoiseSensor::comfortLevelOf);
     }
 
     /**
@@ -49,7 +103,42 @@ public class NoiseSensor extends TimedSensor implements HazardSensor,
      * @ass1
      */
     public double calculateRelativeLoudness() {
-        return Math.pow(2, (this.getCurrentReading() - referenceDB) / 10.0);
+        return relativeLoudnessOf(this.getCurrentReading());
+    }
+
+    /**
+     * Calculates the relative loudness of the given reading compared to a
+     * reference of 70.0 decibels.
+     *
+     * @param reading sound level in decibels
+     * @return relative loudness of the reading to 70dB
+     * @see #calculateRelativeLoudness()
+     */
+    private static double relativeLoudnessOf(int reading) {
+        return Math.pow(2, (reading - referenceDB) / 10.0);
+    }
+
+    /**
+     * Calculates the hazard level for the given reading.
+     *
+     * @param reading sound level in decibels
+     * @return hazard level, as described in {@link #getHazardLevel()}
+     */
+    private static int hazardLevelOf(int reading) {
+        double relativeLoudnessMult100 = relativeLoudnessOf(reading) * 100;
+        return (int) Math.min(Math.floor(relativeLoudnessMult100), 100);
+    }
+
+    /**
+     * Calculates the comfort level for the given reading.
+     *
+     * @param reading sound level in decibels
+     * @return comfort level, as described in {@link #getComfortLevel()}
+     */
+    private static int comfortLevelOf(int reading) {
+        double relativeLoudnessMult100 =
+                (1 - relativeLoudnessOf(reading)) * 100;
+        return (int) Math.max(Math.floor(relativeLoudnessMult100), 0);
     }
 
     /**
@@ -72,8 +161,18 @@ public class NoiseSensor extends TimedSensor implements HazardSensor,
      */
     @Override
     public int getHazardLevel() {
-        double relativeLoudnessMult100 = this.calculateRelativeLoudness() * 100;
-        return (int) Math.min(Math.floor(relativeLoudnessMult100), 100);
+        if (this.hazardLevels == null) {
+            return hazardLevelOf(this.getCurrentReading());
+        }
+        return this.hazardLevels[this.getCurrentIndex()];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] getHazardLevelTable() {
+        return this.hazardLevels;
     }
 
     /**
@@ -81,9 +180,10 @@ public class NoiseSensor extends TimedSensor implements HazardSensor,
      */
     @Override
     public int getComfortLevel() {
-        double relativeLoudnessMult100 =
-                (1 - this.calculateRelativeLoudness()) * 100;
-        return (int) Math.max(Math.floor(relativeLoudnessMult100), 0);
+        if (this.comfortLevels == null) {
+            return comfortLevelOf(this.getCurrentReading());
+        }
+        return this.comfortLevels[this.getCurrentIndex()];
     }
 
     /**
@@ -112,8 +212,9 @@ public class NoiseSensor extends TimedSensor implements HazardSensor,
      * {@inheritDoc}
      */
     @Override
-    public String encode() {
-        return String.format("NoiseSensor:%s:%d", super.encode(),
-                             this.getUpdateFrequency());
+    public void encodeTo(Appendable out) throws IOException {
+        out.append("NoiseSensor:");
+        super.encodeTo(out);
+        out.append(String.format(":%d", this.getUpdateFrequency()));
     }
 }
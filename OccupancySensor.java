@@ -1,5 +1,7 @@
 package bms.sensors;
 
+import java.io.IOException;
+
 /**
  * A sensor that measures the number of people in a room.
  * @ass1
@@ -11,6 +13,18 @@ public class OccupancySensor extends TimedSensor implements HazardSensor,
      */
     private int capacity;
 
+    /**
+     * Hazard level for each sensor reading, indexed like the readings; null
+     * if the readings are held off-heap.
+     */
+    private byte[] hazardLevels;
+
+    /**
+     * Comfort level for each sensor reading, indexed like the readings; null
+     * if the readings are held off-heap.
+     */
+    private byte[] comfortLevels;
+
     /**
      * Creates a new occupancy sensor with the given sensor readings, update
      * frequency and capacity.
@@ -26,13 +40,64 @@ public class OccupancySensor extends TimedSensor implements HazardSensor,
      */
     public OccupancySensor(int[] sensorReadings, int updateFrequency,
                            int capacity) {
-        super(sensorReadings, updateFrequency);
+        this(null, sensorReadings, updateFrequency, capacity);
+    }
 
+    /**
+     * Creates a new occupancy sensor held in the given sensor store.
+     *
+     * @param store store to hold the sensor's state, or null
+     * @param sensorReadings a non-empty array of sensor readings
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param capacity maximum allowable number of people in the room
+     * @throws IllegalArgumentException if capacity is less than zero
+     * @see TimedSensor#TimedSensor(SensorStore, int[], int)
+     */
+    public OccupancySensor(SensorStore store, int[] sensorReadings,
+                           int updateFrequency, int capacity) {
+        super(store, sensorReadings, updateFrequency);
+        try {
+            this.initialise(capacity);
+        } catch (IllegalArgumentException e) {
+            this.releaseStoreSlot();
+            throw e;
+        }
+    }
+
+    /**
+     * Creates a new occupancy sensor whose readings are read from the given
+     * sensor trace.
+     *
+     * @param trace trace holding the sensor readings
+     * @param traceIndex index of the sensor within the trace
+     * @param updateFrequency indicates how often the sensor readings update,
+     *                        in minutes
+     * @param capacity maximum allowable number of people in the room
+     * @throws IllegalArgumentException if capacity is less than zero
+     * @see TimedSensor#TimedSensor(SensorTrace, int, int)
+     */
+    public OccupancySensor(SensorTrace trace, int traceIndex,
+                           int updateFrequency, int capacity) {
+        super(trace, traceIndex, updateFrequency);
+        this.initialise(capacity);
+    }
+
+    /**
+     * Sets the capacity of the sensor and creates the hazard and comfort
+     * level tables.
+     *
+     * @param capacity maximum allowable number of people in the room
+     * @throws IllegalArgumentException if capacity is less than zero
+     */
+    private void initialise(int capacity) {
         if (capacity < 0) {
             throw new IllegalArgumentException("Capacity must be >= 0");
         }
 
         this.capacity = capacity;
+        this.hazardLevels = this.createLevelTable(this::hazardLevelOf);
+        this.comfortLevels = this.createLevelTable(this::comfortLevelOf);
     }
 
     /**
@@ -66,14 +131,18 @@ public class OccupancySensor extends TimedSensor implements HazardSensor,
      */
     @Override
     public int getHazardLevel() {
-        final int currentReading = this.getCurrentReading();
-
-        if (currentReading >= this.capacity) {
-            return 100;
+        if (this.hazardLevels == null) {
+            return hazardLevelOf(this.getCurrentReading());
         }
-        double occupancyRatio = ((double) currentReading) / this.capacity;
-        double occupancyPct = 100 * occupancyRatio;
-        return (int) Math.round(occupancyPct);
+        return this.hazardLevels[this.getCurrentIndex()];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] getHazardLevelTable() {
+        return this.hazardLevels;
     }
 
     /**
@@ -81,13 +150,38 @@ public class OccupancySensor extends TimedSensor implements HazardSensor,
      */
     @Override
     public int getComfortLevel() {
-        final int currentReading = this.getCurrentReading();
+        if (this.comfortLevels == null) {
+            return comfortLevelOf(this.getCurrentReading());
+        }
+        return this.comfortLevels[this.getCurrentIndex()];
+    }
 
-        if (currentReading >= this.capacity) {
-            return 0;
+    /**
+     * Calculates the hazard level for the given reading.
+     *
+     * @param reading number of people in the room
+     * @return hazard level, as described in {@link #getHazardLevel()}
+     */
+    private int hazardLevelOf(int reading) {
+        if (reading >= this.capacity) {
+            return 100;
         }
+        double occupancyRatio = ((double) reading) / this.capacity;
+        double occupancyPct = 100 * occupancyRatio;
+        return (int) Math.round(occupancyPct);
+    }
 
-        double occupancyRatio = ((double) currentReading) / this.capacity;
+    /**
+     * Calculates the comfort level for the given reading.
+     *
+     * @param reading number of people in the room
+     * @return comfort level, as described in {@link #getComfortLevel()}
+     */
+    private int comfortLevelOf(int reading) {
+        if (reading >= this.capacity) {
+            return 0;
+        }
+        double occupancyRatio = ((double) reading) / this.capacity;
         double occupancyPct = 100 * occupancyRatio;
         return (int) Math.round(100 - occupancyPct);
     }
@@ -141,8 +235,10 @@ public class OccupancySensor extends TimedSensor implements HazardSensor,
      * {@inheritDoc}
      */
     @Override
-    public String encode() {
-        return String.format("OccupancySensor:%s:%d:%d", super.encode(),
-                             this.getUpdateFrequency(), this.capacity);
+    public void encodeTo(Appendable out) throws IOException {
+        out.append("OccupancySensor:");
+        super.encodeTo(out);
+        out.append(String.format(":%d:%d", this.getUpdateFrequency(),
+                                 this.capacity));
     }
 }
@@ -0,0 +1,321 @@
+package bms.sensors;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pool of sensor reading arrays, shared between all sensors with identical
+ * readings.
+ * <p>
+ * Buildings created from templates often contain thousands of sensors with
+ * exactly the same readings. Interning the readings through this pool means
+ * each distinct sequence of readings is held in memory only once. The level
+ * tables sensors derive from their readings (see
+ * {@link TimedSensor#createLevelTable(java.util.function.IntUnaryOperator)})
+ * are interned in the same way.
+ * <p>
+ * Arrays returned by the pool are shared, so must never be modified. The pool
+ * only holds weak references to its arrays, so readings no longer used by any
+ * sensor can still be garbage collected.
+ */
+public final class ReadingsPool {
+    /**
+     * Interned arrays, keyed by their contents.
+     */
+    private static final Map<Key, WeakKey> POOL = new HashMap<>();
+
+    /**
+     * Queue of references to interned arrays that have been collected.
+     */
+    private static final ReferenceQueue<Object> COLLECTED =
+            new ReferenceQueue<>();
+
+    /**
+     * Not instantiable.
+     */
+    private ReadingsPool() {
+    }
+
+    /**
+     * Returns an array with the same contents as the given readings, shared
+     * with every other sensor that has the same readings.
+     * <p>
+     * The first time a sequence of readings is interned, a copy is made, so
+     * later changes to the given array never affect the shared array.
+     *
+     * @param readings sensor readings to intern
+     * @return shared array with the same contents as the given readings
+     */
+    public static int[] intern(int[] readings) {
+        Key probe = new StrongKey(readings, 0, readings.length);
+        synchronized (POOL) {
+            Object shared = lookUp(probe);
+            if (shared == null) {
+                shared = Arrays.copyOf(readings, readings.length);
+                add(shared, probe.hash);
+            }
+            return (int[]) shared;
+        }
+    }
+
+    /**
+     * Returns an array with the same contents as the given table of levels,
+     * shared with every other sensor that has the same levels.
+     * <p>
+     * The given array is kept by the pool if it is the first with its
+     * contents, so must not be modified after it is interned.
+     *
+     * @param levels table of levels to intern
+     * @return shared array with the same contents as the given levels
+     */
+    public static byte[] intern(byte[] levels) {
+        Key probe = new StrongKey(levels, 0, levels.length);
+        synchronized (POOL) {
+            Object shared = lookUp(probe);
+            if (shared == null) {
+                shared = levels;
+                add(shared, probe.hash);
+            }
+            return (byte[]) shared;
+        }
+    }
+
+    /**
+     * Finds the interned array with the same contents as the given key.
+     * Must be called while holding the lock on the pool.
+     *
+     * @param probe key to look up
+     * @return interned array; null if there is none
+     */
+    private static Object lookUp(Key probe) {
+        expungeCollected();
+        WeakKey existing = POOL.get(probe);
+        return existing == null ? null : existing.array();
+    }
+
+    /**
+     * Adds a newly interned array to the pool. Must be called while holding
+     * the lock on the pool.
+     *
+     * @param array array to add
+     * @param hash hash of the array's contents
+     */
+    private static void add(Object array, int hash) {
+        WeakKey key = new WeakKey(array, hash);
+        POOL.put(key, key);
+    }
+
+    /**
+     * Returns the number of distinct arrays of readings and levels held by
+     * the pool.
+     *
+     * @return number of interned arrays
+     */
+    public static int size() {
+        synchronized (POOL) {
+            expungeCollected();
+            return POOL.size();
+        }
+    }
+
+    /**
+     * Removes entries whose arrays have been garbage collected.
+     */
+    private static void expungeCollected() {
+        Object reference;
+        while ((reference = COLLECTED.poll()) != null) {
+            WeakKey key = ((CollectableArray) reference).key;
+            POOL.remove(key);
+        }
+    }
+
+    /**
+     * Content-based key for a range of an array of readings or levels.
+     * <p>
+     * Two keys are equal if their ranges are of the same element type and
+     * hold the same values in the same order.
+     */
+    abstract static class Key {
+        /**
+         * Position of the first element within the array.
+         */
+        final int offset;
+
+        /**
+         * Number of elements in the range.
+         */
+        final int length;
+
+        /**
+         * Hash of the elements in the range.
+         */
+        final int hash;
+
+        /**
+         * Creates a new key for a range with the given hash.
+         *
+         * @param offset position of the first element within the array
+         * @param length number of elements in the range
+         * @param hash hash of the elements in the range
+         */
+        Key(int offset, int length, int hash) {
+            this.offset = offset;
+            this.length = length;
+            this.hash = hash;
+        }
+
+        /**
+         * Returns the array holding the range, either an int[] or a byte[].
+         *
+         * @return array; null if it has been garbage collected
+         */
+        abstract Object array();
+
+        /**
+         * Calculates the hash of a range of an int[] or byte[].
+         *
+         * @param array array holding the range
+         * @param offset position of the first element
+         * @param length number of elements
+         * @return hash of the elements
+         */
+        static int hash(Object array, int offset, int length) {
+            int hash = array instanceof int[] ? 1 : 2;
+            if (array instanceof int[]) {
+                int[] values = (int[]) array;
+                for (int i = offset; i < offset + length; i++) {
+                    hash = 31 * hash + values[i];
+                }
+            } else {
+                byte[] values = (byte[]) array;
+                for (int i = offset; i < offset + length; i++) {
+                    hash = 31 * hash + values[i];
+                }
+            }
+            return hash;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) obj;
+            if (this.hash != key.hash || this.length != key.length) {
+                return false;
+            }
+            Object array = this.array();
+            Object other = key.array();
+            if (array instanceof int[] && other instanceof int[]) {
+                return Arrays.equals((int[]) array, this.offset,
+                        this.offset + this.length, (int[]) other, key.offset,
+                        key.offset + key.length);
+            }
+            if (array instanceof byte[] && other instanceof byte[]) {
+                return Arrays.equals((byte[]) array, this.offset,
+                        this.offset + this.length, (byte[]) other, key.offset,
+                        key.offset + key.length);
+            }
+            return false;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    /**
+     * Key which holds a strong reference to its array.
+     */
+    static final class StrongKey extends Key {
+        /**
+         * Array holding the range.
+         */
+        private final Object array;
+
+        /**
+         * Creates a new key for the given range of an int[] or byte[].
+         *
+         * @param array array holding the range
+         * @param offset position of the first element
+         * @param length number of elements
+         */
+        StrongKey(Object array, int offset, int length) {
+            super(offset, length, hash(array, offset, length));
+            this.array = array;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        Object array() {
+            return this.array;
+        }
+    }
+
+    /**
+     * Key which allows its array to be garbage collected.
+     */
+    private static final class WeakKey extends Key {
+        /**
+         * Reference to the array.
+         */
+        private final CollectableArray reference;
+
+        /**
+         * Creates a new key for the whole of the given array.
+         *
+         * @param array interned int[] or byte[]
+         * @param hash hash of the array's contents
+         */
+        private WeakKey(Object array, int hash) {
+            super(0, array instanceof int[] ? ((int[]) array).length
+                    : ((byte[]) array).length, hash);
+            this.reference = new CollectableArray(array, this);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        Object array() {
+            return this.reference.get();
+        }
+    }
+
+    /**
+     * Weak reference to an interned array, which remembers its key so the
+     * entry can be removed once the array is collected.
+     */
+    private static final class CollectableArray extends WeakReference<Object> {
+        /**
+         * Key of the interned array.
+         */
+        private final WeakKey key;
+
+        /**
+         * Creates a new weak reference to an interned array.
+         *
+         * @param array interned array
+         * @param key key of the array in the pool
+         */
+        private CollectableArray(Object array, WeakKey key) {
+            super(array, COLLECTED);
+            this.key = key;
+        }
+    }
+}
@@ -6,8 +6,8 @@ import bms.hazardevaluation.WeightingBasedHazardEvaluator;
 import bms.sensors.*;
 import bms.util.Encodable;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Represents a room on a floor of a building.
@@ -42,6 +42,25 @@ public class Room implements Encodable {
      */
     private List<Sensor> sensors;
 
+    /**
+     * Read-only view of the list of sensors.
+     */
+    private List<Sensor> sensorsView;
+
+    /**
+     * Sensors in the room indexed by {@link SensorKind#ordinal()}; null
+     * where the room has no sensor of that kind. Always contains exactly the
+     * sensors in {@link #sensors} of a known kind.
+     */
+    private Sensor[] sensorSlots;
+
+    /**
+     * Sensors in the room whose class is not exactly one of the classes
+     * listed in {@link SensorKind}, such as subclasses of the known sensors.
+     * Rooms may only have up to one sensor of each of these classes.
+     */
+    private List<Sensor> otherSensors;
+
     /**
      * This rooms hazard evaluator.
      */
@@ -83,6 +102,9 @@ public class Room implements Encodable {
         this.area = area;
 
         this.sensors = new ArrayList<>();
+        this.sensorsView = Collections.unmodifiableList(this.sensors);
+        this.sensorSlots = new Sensor[SensorKind.count()];
+        this.otherSensors = new ArrayList<>();
         this.fireDrill = false;
         this.maintenance = false;
         this.evaluator = null;
@@ -165,6 +187,20 @@ public class Room implements Encodable {
         return new ArrayList<>(this.sensors);
     }
 
+    /**
+     * Returns a read-only view of the sensors in this room, in the same
+     * order as {@link #getSensors()}.
+     * <p>
+     * Unlike {@link #getSensors()}, no copy is made, so the view reflects
+     * any sensors added to the room later on.
+     *
+     * @return unmodifiable list of all sensors in alphabetical order of
+     * class name
+     */
+    public List<Sensor> getSensorsView() {
+        return this.sensorsView;
+    }
+
     /**
      * Change the status of the fire drill to the given value.
      *
@@ -213,7 +249,11 @@ public class Room implements Encodable {
      * @ass1
      */
     public Sensor getSensor(String sensorType) {
-        for (Sensor s : this.getSensors()) {
+        SensorKind kind = SensorKind.fromClassName(sensorType);
+        if (kind != null && this.sensorSlots[kind.ordinal()] != null) {
+            return this.sensorSlots[kind.ordinal()];
+        }
+        for (Sensor s : this.otherSensors) {
             if (s.getClass().getSimpleName().equals(sensorType)) {
                 return s;
             }
@@ -221,6 +261,17 @@ public class Room implements Encodable {
         return null;
     }
 
+    /**
+     * Return the sensor of the given kind if there is one in this room;
+     * return null otherwise.
+     *
+     * @param kind the kind of sensor to find
+     * @return the sensor in this room of the given kind; null if none found
+     */
+    public Sensor getSensor(SensorKind kind) {
+        return this.sensorSlots[kind.ordinal()];
+    }
+
     /**
      * Adds a sensor to the room if a sensor of the same type is not
      * already in the room.
@@ -235,15 +286,39 @@ public class Room implements Encodable {
      */
     public void addSensor(Sensor sensor)
             throws DuplicateSensorException {
-        for (Sensor s : sensors) {
-            if (s.getClass().equals(sensor.getClass())) {
-                throw new DuplicateSensorException(
-                        "Duplicate sensor of type: "
-                                + s.getClass().getSimpleName());
+        SensorKind kind = SensorKind.of(sensor);
+        if (kind == null) {
+            for (Sensor s : otherSensors) {
+                if (s.getClass().equals(sensor.getClass())) {
+                    throw new DuplicateSensorException(
+                            "Duplicate sensor of type: "
+                                    + s.getClass().getSimpleName());
+                }
+            }
+            otherSensors.add(sensor);
+        } else {
+            int slot = kind.ordinal();
+            if (sensorSlots[slot] != null) {
+                throw new DuplicateSensorException("Duplicate sensor of type: "
+                        + sensorSlots[slot].getClass().getSimpleName());
             }
+            sensorSlots[slot] = sensor;
+        }
+        if (otherSensors.isEmpty()) {
+            // slots are in alphabetical order, so the new sensor goes after
+            // every sensor occupying an earlier slot
+            int position = 0;
+            for (int i = 0; i < kind.ordinal(); i++) {
+                if (sensorSlots[i] != null) {
+                    position++;
+                }
+            }
+            sensors.add(position, sensor);
+        } else {
+            sensors.add(sensor);
+            sensors.sort(Comparator.comparing(
+                    s -> s.getClass().getSimpleName()));
         }
-        sensors.add(sensor);
-        sensors.sort(Comparator.comparing(s -> s.getClass().getSimpleName()));
         this.setHazardEvaluator(null);
     }
 
@@ -253,11 +328,17 @@ public class Room implements Encodable {
      * @return current room status
      */
     public RoomState evaluateRoomState() {
-        for (Sensor sensor : this.sensors) {
-            if (sensor instanceof TemperatureSensor) {
-                if (((TemperatureSensor) sensor).getHazardLevel() == 100) {
-                    return RoomState.EVACUATE;
-                }
+        Sensor temperature =
+                this.sensorSlots[SensorKind.TEMPERATURE.ordinal()];
+        if (temperature != null
+                && ((TemperatureSensor) temperature).getHazardLevel()
+                == 100) {
+            return RoomState.EVACUATE;
+        }
+        for (Sensor sensor : this.otherSensors) {
+            if (sensor instanceof TemperatureSensor
+                    && ((TemperatureSensor) sensor).getHazardLevel() == 100) {
+                return RoomState.EVACUATE;
             }
         }
         if (this.fireDrillOngoing()) {
@@ -330,28 +411,33 @@ public class Room implements Encodable {
      */
     @Override
     public String encode() {
-        StringJoiner joinerFirst = new StringJoiner(":");
-        joinerFirst.add(String.format("%d:%s:%.2f:%d", this.roomNumber,
-                                  this.type, this.area,
-                                      this.getSensors().size()));
+        return Encodable.encodeToString(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        out.append(String.format("%d:%s:%.2f:%d", this.roomNumber,
+                                 this.type, this.area, sensors.size()));
         if (this.getHazardEvaluator() != null) {
-            joinerFirst.add(this.evaluator.toString());
+            out.append(':').append(this.evaluator.toString());
+        }
+        WeightingBasedHazardEvaluator weighted = null;
+        if (this.evaluator != null
+                && !this.evaluator.getClass().getSimpleName()
+                .equals("RuleBasedHazardEvaluator")) {
+            weighted = (WeightingBasedHazardEvaluator) this.evaluator;
         }
-        StringJoiner joiner = new StringJoiner(System.lineSeparator());
-        joiner.add(joinerFirst.toString());
-        for (int i = 0; i < getSensors().size(); i++) {
-            TimedSensor timedSensor = (TimedSensor) getSensors().get(i);
-            if (this.evaluator == null
-                    || this.evaluator.getClass().getSimpleName()
-                    .equals("RuleBasedHazardEvaluator")) {
-                joiner.add(timedSensor.encode());
-            } else {
-                WeightingBasedHazardEvaluator weightingBased =
-                        (WeightingBasedHazardEvaluator) this.evaluator;
-                joiner.add(timedSensor.encode() + "@" +
-                                   weightingBased.getWeightings().get(i));
+        for (int i = 0; i < sensors.size(); i++) {
+            TimedSensor timedSensor = (TimedSensor) sensors.get(i);
+            out.append(System.lineSeparator());
+            timedSensor.encodeTo(out);
+            if (weighted != null) {
+                out.append('@').append(String.valueOf(
+                        weighted.getWeighting((HazardSensor) timedSensor)));
             }
         }
-        return joiner.toString();
     }
 }
@@ -9,7 +9,7 @@ import java.util.List;
 /**
  * Evaluates the hazard level of a location using a rule based system.
  */
-public class RuleBasedHazardEvaluator implements HazardEvaluator {
+public class RuleBasedHazardEvaluator extends CachingHazardEvaluator {
     /**
      * The list of sensors to be used in the hazard level calculation.
      */
@@ -22,6 +22,7 @@ public class RuleBasedHazardEvaluator implements HazardEvaluator {
      * @param sensors sensors to be used in the hazard level calculation
      */
     public RuleBasedHazardEvaluator(List<HazardSensor> sensors) {
+        super(sensors);
         this.sensors = sensors;
     }
 
@@ -29,7 +30,7 @@ public class RuleBasedHazardEvaluator implements HazardEvaluator {
      * {@inheritDoc}
      */
     @Override
-    public int evaluateHazardLevel() {
+    protected int calculateHazardLevel() {
         int totalHazardLevel = 0;
         int occupancyLevel = 0;
         if (this.sensors.isEmpty()) {
@@ -56,6 +57,14 @@ public class RuleBasedHazardEvaluator implements HazardEvaluator {
         }
     }
 
+    /**
+     * Returns the sensors used in the hazard level calculation.
+     * @return sensors, without copying
+     */
+    List<HazardSensor> getSensors() {
+        return this.sensors;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,415 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads tokens from a save file in a single pass, directly from a buffer
+ * filled by a file channel.
+ * <p>
+ * Integers and decimals are parsed in place from the buffered bytes, without
+ * creating intermediate strings for each line or field.
+ */
+class SaveFileTokenizer implements Closeable {
+    /**
+     * Size of the read buffer, in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Largest number of digits that can be parsed exactly into a double
+     * without falling back to {@link Double#parseDouble(String)}.
+     */
+    private static final int MAX_EXACT_DIGITS = 15;
+
+    /**
+     * Powers of ten which are exactly representable as doubles.
+     */
+    private static final double[] POWERS_OF_TEN = new double[
+            MAX_EXACT_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    /**
+     * Channel from which bytes are read.
+     */
+    private FileChannel channel;
+
+    /**
+     * Buffer holding the bytes most recently read from the channel.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * Backing array of the buffer.
+     */
+    private byte[] bytes;
+
+    /**
+     * Index of the next unread byte in the buffer.
+     */
+    private int position;
+
+    /**
+     * Number of valid bytes in the buffer.
+     */
+    private int limit;
+
+    /**
+     * Whether the end of the channel has been reached.
+     */
+    private boolean endOfFile;
+
+    /**
+     * Scratch space for the bytes of a token that cannot be parsed in place.
+     */
+    private byte[] token;
+
+    /**
+     * Scratch space for lists of integers.
+     */
+    private int[] integers;
+
+    /**
+     * Creates a new tokenizer which reads from the file at the given path.
+     *
+     * @param path path of the file to read
+     * @throws IOException if the file cannot be opened
+     */
+    SaveFileTokenizer(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.bytes = new byte[BUFFER_SIZE];
+        this.buffer = ByteBuffer.wrap(this.bytes);
+        this.token = new byte[64];
+        this.integers = new int[64];
+    }
+
+    /**
+     * Returns the next unread byte without consuming it, refilling the buffer
+     * from the channel if necessary.
+     *
+     * @return next byte as an unsigned value; -1 if the end of the file has
+     * been reached
+     * @throws IOException if the channel cannot be read
+     */
+    private int peek() throws IOException {
+        if (this.position == this.limit) {
+            if (this.endOfFile) {
+                return -1;
+            }
+            int read;
+            do {
+                this.buffer.clear();
+                read = this.channel.read(this.buffer);
+            } while (read == 0);
+            if (read < 0) {
+                this.endOfFile = true;
+                return -1;
+            }
+            this.position = 0;
+            this.limit = read;
+        }
+        return this.bytes[this.position] & 0xFF;
+    }
+
+    /**
+     * Returns whether the given byte ends a field.
+     *
+     * @param c byte to check, or -1 for the end of the file
+     * @return true if the byte is a field separator or a line ending
+     */
+    private static boolean isDelimiter(int c) {
+        return c == ':' || c == ',' || c == '@' || c == '\n' || c == '\r'
+                || c == -1;
+    }
+
+    /**
+     * Returns whether the given byte ends a line.
+     *
+     * @param c byte to check, or -1 for the end of the file
+     * @return true if the byte is a line ending
+     */
+    private static boolean isLineEnd(int c) {
+        return c == '\n' || c == '\r' || c == -1;
+    }
+
+    /**
+     * Returns whether the end of the file has been reached.
+     *
+     * @return true if there are no more bytes to read
+     * @throws IOException if the channel cannot be read
+     */
+    boolean atEnd() throws IOException {
+        return this.peek() == -1;
+    }
+
+    /**
+     * Consumes the given separator character.
+     *
+     * @param separator character expected next in the file
+     * @throws IOException if the channel cannot be read
+     * @throws FileFormatException if the next character is not the separator
+     */
+    void expect(char separator) throws IOException, FileFormatException {
+        if (!this.tryConsume(separator)) {
+            throw new FileFormatException();
+        }
+    }
+
+    /**
+     * Consumes the given separator character if it is next in the file.
+     *
+     * @param separator character to consume
+     * @return true if the separator was consumed
+     * @throws IOException if the channel cannot be read
+     */
+    boolean tryConsume(char separator) throws IOException {
+        if (this.peek() == separator) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Consumes a line ending ("\n", "\r\n" or "\r"). The end of the file is
+     * also accepted as the end of a line.
+     *
+     * @throws IOException if the channel cannot be read
+     * @throws FileFormatException if there are unread fields on this line
+     */
+    void endLine() throws IOException, FileFormatException {
+        if (this.tryConsume('\r')) {
+            this.tryConsume('\n');
+        } else if (!this.tryConsume('\n') && this.peek() != -1) {
+            throw new FileFormatException();
+        }
+    }
+
+    /**
+     * Skips the remainder of the current line, leaving the line ending
+     * unread.
+     *
+     * @param stopAtWeighting whether to stop before the first '@' instead,
+     *                        leaving the weighting that follows it unread
+     * @throws IOException if the channel cannot be read
+     */
+    void skipFields(boolean stopAtWeighting) throws IOException {
+        int c;
+        while (!isLineEnd(c = this.peek()) && !(stopAtWeighting && c == '@')) {
+            this.position++;
+        }
+    }
+
+    /**
+     * Reads the remainder of the current line as a string, and consumes the
+     * line ending.
+     *
+     * @return remainder of the line
+     * @throws IOException if the channel cannot be read
+     * @throws FileFormatException if the file format is invalid
+     */
+    String readLine() throws IOException, FileFormatException {
+        int length = 0;
+        int c;
+        while (!isLineEnd(c = this.peek())) {
+            length = this.appendToken(length, c);
+            this.position++;
+        }
+        this.endLine();
+        return new String(this.token, 0, length, Charset.defaultCharset());
+    }
+
+    /**
+     * Reads a field which must match one of the given keywords.
+     *
+     * @param keywords allowed values of the field
+     * @return index of the keyword that was read
+     * @throws IOException if the channel cannot be read
+     * @throws FileFormatException if the field does not match any keyword
+     */
+    int readKeyword(String[] keywords) throws IOException,
+            FileFormatException {
+        int length = 0;
+        int c;
+        while (!isDelimiter(c = this.peek())) {
+            length = this.appendToken(length, c);
+            this.position++;
+        }
+        for (int i = 0; i < keywords.length; i++) {
+            if (this.tokenEquals(length, keywords[i])) {
+                return i;
+            }
+        }
+        throw new FileFormatException();
+    }
+
+    /**
+     * Reads a field containing a decimal integer.
+     *
+     * @return integer that was read
+     * @throws IOException if the channel cannot be read
+     * @throws FileFormatException if the field is not a valid integer
+     */
+    int readInt() throws IOException, FileFormatException {
+        int c = this.peek();
+        boolean negative = false;
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            this.position++;
+            c = this.peek();
+        }
+        if (c < '0' || c > '9') {
+            throw new FileFormatException();
+        }
+        long value = 0;
+        do {
+            value = value * 10 + (c - '0');
+            if (value > -(long) Integer.MIN_VALUE) {
+                throw new FileFormatException();
+            }
+            this.position++;
+            c = this.peek();
+        } while (c >= '0' && c <= '9');
+        if (!isDelimiter(c)) {
+            throw new FileFormatException();
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new FileFormatException();
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a comma-separated list of decimal integers.
+     *
+     * @return new array containing the integers that were read
+     * @throws IOException if the channel cannot be read
+     * @throws FileFormatException if any element is not a valid integer
+     */
+    int[] readIntList() throws IOException, FileFormatException {
+        int count = 0;
+        do {
+            if (count == this.integers.length) {
+                this.integers = Arrays.copyOf(this.integers, count * 2);
+            }
+            this.integers[count++] = this.readInt();
+        } while (this.tryConsume(','));
+        return Arrays.copyOf(this.integers, count);
+    }
+
+    /**
+     * Reads a field containing a decimal number.
+     * <p>
+     * Plain decimals such as "12.50" are parsed in place; any other form is
+     * parsed by {@link Double#parseDouble(String)}.
+     *
+     * @return number that was read
+     * @throws IOException if the channel cannot be read
+     * @throws FileFormatException if the field is not a valid number
+     */
+    double readDouble() throws IOException, FileFormatException {
+        int length = 0;
+        int c;
+        while (!isDelimiter(c = this.peek())) {
+            length = this.appendToken(length, c);
+            this.position++;
+        }
+
+        int i = 0;
+        boolean negative = false;
+        if (length > 0 && (this.token[0] == '-' || this.token[0] == '+')) {
+            negative = this.token[0] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < length; i++) {
+            byte b = this.token[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+        }
+        if (i == length && digits > 0 && digits <= MAX_EXACT_DIGITS) {
+            // both values are exact, so the quotient is correctly rounded
+            double value = mantissa
+                    / POWERS_OF_TEN[Math.max(fractionDigits, 0)];
+            return negative ? -value : value;
+        }
+
+        try {
+            return Double.parseDouble(new String(this.token, 0, length,
+                    StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new FileFormatException();
+        }
+    }
+
+    /**
+     * Appends a byte to the token scratch space, growing it if necessary.
+     *
+     * @param length current length of the token
+     * @param c byte to append
+     * @return new length of the token
+     */
+    private int appendToken(int length, int c) {
+        if (length == this.token.length) {
+            this.token = Arrays.copyOf(this.token, length * 2);
+        }
+        this.token[length] = (byte) c;
+        return length + 1;
+    }
+
+    /**
+     * Returns whether the token scratch space holds the given ASCII string.
+     *
+     * @param length length of the token
+     * @param value string to compare against
+     * @return true if the token equals the string
+     */
+    private boolean tokenEquals(int length, String value) {
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (this.token[i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Closes the underlying file channel.
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.channel.close();
+    }
+}
@@ -0,0 +1,247 @@
+package bms;
+
+import bms.room.Room;
+import bms.room.RoomState;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-room distributions of room states and hazard levels, aggregated over
+ * every minute of every scenario run by a {@link ScenarioRunner}.
+ * <p>
+ * Rooms are identified by the rooms of the buildings the scenarios were
+ * copied from, so the results can be looked up using the original model.
+ */
+public class ScenarioResults {
+    /**
+     * Number of distinct hazard levels, from 0 to 100 inclusive.
+     */
+    static final int HAZARD_LEVELS = 101;
+
+    /**
+     * Number of distinct room states.
+     */
+    static final int STATES = RoomState.values().length;
+
+    /**
+     * Rooms of the original buildings, in the order they are indexed.
+     */
+    private final List<Room> rooms;
+
+    /**
+     * Index of each room in {@link #rooms}.
+     */
+    private final Map<Room, Integer> roomIndices;
+
+    /**
+     * Number of scenarios aggregated.
+     */
+    private final int scenarios;
+
+    /**
+     * Number of minutes each scenario was run for.
+     */
+    private final int minutes;
+
+    /**
+     * Number of minutes each room spent in each state, indexed by
+     * {@code room * STATES + state}.
+     */
+    private final long[] stateCounts;
+
+    /**
+     * Number of minutes each room had each hazard level, indexed by
+     * {@code room * HAZARD_LEVELS + level}.
+     */
+    private final long[] hazardCounts;
+
+    /**
+     * Creates new, empty results for the given rooms.
+     *
+     * @param rooms rooms of the original buildings
+     * @param scenarios number of scenarios being aggregated
+     * @param minutes number of minutes each scenario is run for
+     */
+    ScenarioResults(List<Room> rooms, int scenarios, int minutes) {
+        this.rooms = Collections.unmodifiableList(new ArrayList<>(rooms));
+        this.roomIndices = new IdentityHashMap<>();
+        for (int i = 0; i < rooms.size(); i++) {
+            this.roomIndices.put(rooms.get(i), i);
+        }
+        this.scenarios = scenarios;
+        this.minutes = minutes;
+        this.stateCounts = new long[rooms.size() * STATES];
+        this.hazardCounts = new long[rooms.size() * HAZARD_LEVELS];
+    }
+
+    /**
+     * Adds the counts recorded by a single scenario to the results.
+     *
+     * @param stateCounts minutes spent in each state by each room, indexed
+     *                    like {@link #stateCounts}
+     * @param hazardCounts minutes spent at each hazard level by each room,
+     *                     indexed like {@link #hazardCounts}
+     */
+    synchronized void add(int[] stateCounts, int[] hazardCounts) {
+        for (int i = 0; i < stateCounts.length; i++) {
+            this.stateCounts[i] += stateCounts[i];
+        }
+        for (int i = 0; i < hazardCounts.length; i++) {
+            this.hazardCounts[i] += hazardCounts[i];
+        }
+    }
+
+    /**
+     * Returns the rooms the results are recorded for, from the original
+     * buildings.
+     *
+     * @return unmodifiable list of rooms
+     */
+    public List<Room> getRooms() {
+        return this.rooms;
+    }
+
+    /**
+     * Returns the number of scenarios that were run.
+     *
+     * @return number of scenarios
+     */
+    public int getScenarioCount() {
+        return this.scenarios;
+    }
+
+    /**
+     * Returns the number of minutes each scenario was run for.
+     *
+     * @return number of minutes
+     */
+    public int getMinutes() {
+        return this.minutes;
+    }
+
+    /**
+     * Returns the number of minutes, over all scenarios, that the given room
+     * was in the given state.
+     *
+     * @param room room from the original buildings
+     * @param state room state
+     * @return number of minutes spent in the state
+     * @throws IllegalArgumentException if the room is not in the results
+     */
+    public long getStateCount(Room room, RoomState state)
+            throws IllegalArgumentException {
+        return this.stateCounts[this.indexOf(room) * STATES
+                + state.ordinal()];
+    }
+
+    /**
+     * Returns the proportion of minutes, over all scenarios, that the given
+     * room was in the given state.
+     *
+     * @param room room from the original buildings
+     * @param state room state
+     * @return probability of the room being in the state, between 0 and 1
+     * @throws IllegalArgumentException if the room is not in the results
+     */
+    public double getStateProbability(Room room, RoomState state)
+            throws IllegalArgumentException {
+        return (double) this.getStateCount(room, state)
+                / ((long) this.scenarios * this.minutes);
+    }
+
+    /**
+     * Returns the number of minutes, over all scenarios, that the given room
+     * had each hazard level.
+     * <p>
+     * Rooms without a hazard evaluator have no hazard levels recorded.
+     *
+     * @param room room from the original buildings
+     * @return array of 101 counts, indexed by hazard level
+     * @throws IllegalArgumentException if the room is not in the results
+     */
+    public long[] getHazardHistogram(Room room)
+            throws IllegalArgumentException {
+        long[] histogram = new long[HAZARD_LEVELS];
+        System.arraycopy(this.hazardCounts, this.indexOf(room)
+                * HAZARD_LEVELS, histogram, 0, HAZARD_LEVELS);
+        return histogram;
+    }
+
+    /**
+     * Returns the mean hazard level of the given room over all minutes of
+     * all scenarios.
+     *
+     * @param room room from the original buildings
+     * @return mean hazard level; or -1 if the room has no hazard evaluator
+     * @throws IllegalArgumentException if the room is not in the results
+     */
+    public double getMeanHazardLevel(Room room)
+            throws IllegalArgumentException {
+        long[] histogram = this.getHazardHistogram(room);
+        long total = 0;
+        long sum = 0;
+        for (int level = 0; level < HAZARD_LEVELS; level++) {
+            total += histogram[level];
+            sum += histogram[level] * level;
+        }
+        return total == 0 ? -1 : (double) sum / total;
+    }
+
+    /**
+     * Returns the lowest hazard level which the given room's hazard level
+     * did not exceed for at least the given proportion of minutes.
+     * <p>
+     * For example, a percentile of 0.95 returns the hazard level exceeded
+     * in only 5% of all minutes.
+     *
+     * @param room room from the original buildings
+     * @param percentile proportion of minutes, between 0 and 1
+     * @return hazard level at the percentile; or -1 if the room has no hazard
+     * evaluator
+     * @throws IllegalArgumentException if the room is not in the results, or
+     * the percentile is not between 0 and 1
+     */
+    public int getHazardPercentile(Room room, double percentile)
+            throws IllegalArgumentException {
+        if (percentile < 0 || percentile > 1) {
+            throw new IllegalArgumentException(
+                    "Percentile must be between 0 and 1");
+        }
+        long[] histogram = this.getHazardHistogram(room);
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return -1;
+        }
+        long seen = 0;
+        for (int level = 0; level < HAZARD_LEVELS; level++) {
+            seen += histogram[level];
+            if (seen >= percentile * total) {
+                return level;
+            }
+        }
+        return HAZARD_LEVELS - 1;
+    }
+
+    /**
+     * Returns the index of the given room.
+     *
+     * @param room room from the original buildings
+     * @return index of the room
+     * @throws IllegalArgumentException if the room is not in the results
+     */
+    private int indexOf(Room room) throws IllegalArgumentException {
+        Integer index = this.roomIndices.get(room);
+        if (index == null) {
+            throw new IllegalArgumentException(
+                    "Room is not part of the scenarios");
+        }
+        return index;
+    }
+}
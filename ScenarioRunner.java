@@ -0,0 +1,375 @@
+package bms;
+
+import bms.building.BinarySnapshot;
+import bms.building.Building;
+import bms.building.BuildingInitialiser;
+import bms.exceptions.FileFormatException;
+import bms.exceptions.FireDrillException;
+import bms.floor.Floor;
+import bms.hazardevaluation.HazardEvaluator;
+import bms.room.Room;
+import bms.room.RoomState;
+import bms.room.RoomType;
+import bms.sensors.Sensor;
+import bms.sensors.TimedSensor;
+import bms.util.TimedItemManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many randomised copies of a model in parallel, and aggregates the
+ * resulting room states and hazard levels of every room.
+ * <p>
+ * Each scenario is an independent copy of the buildings, made from a binary
+ * snapshot (see {@link BinarySnapshot}) and simulated by its own
+ * {@link TimedItemManager}, so scenarios never affect each other or the
+ * original buildings. Each scenario may be perturbed by shifting every
+ * sensor's readings forward by a random number of minutes, and by starting
+ * fire drills in random buildings at random times.
+ * <p>
+ * Results are reproducible: the same seed always produces the same
+ * scenarios, regardless of the number of threads used.
+ */
+public class ScenarioRunner {
+    /**
+     * Buildings to copy into each scenario.
+     */
+    private List<Building> buildings;
+
+    /**
+     * Number of scenarios to run.
+     */
+    private int scenarios;
+
+    /**
+     * Seed used to randomise the scenarios.
+     */
+    private long seed;
+
+    /**
+     * Maximum number of minutes each sensor's readings are shifted forward.
+     */
+    private int maxPhaseShift;
+
+    /**
+     * Probability of a fire drill starting in each building, per minute.
+     */
+    private double fireDrillProbability;
+
+    /**
+     * Number of minutes each fire drill lasts.
+     */
+    private int fireDrillDuration;
+
+    /**
+     * Number of scenarios run at the same time.
+     */
+    private int parallelism;
+
+    /**
+     * Creates a new scenario runner for the given buildings.
+     * <p>
+     * By default, scenarios are not perturbed, and are run on as many threads
+     * as there are available processors.
+     *
+     * @param buildings buildings to copy into each scenario
+     * @param scenarios number of scenarios to run
+     * @param seed seed used to randomise the scenarios
+     * @throws IllegalArgumentException if scenarios &lt; 1
+     */
+    public ScenarioRunner(List<Building> buildings, int scenarios, long seed)
+            throws IllegalArgumentException {
+        if (scenarios < 1) {
+            throw new IllegalArgumentException(
+                    "Must run at least one scenario");
+        }
+        this.buildings = buildings;
+        this.scenarios = scenarios;
+        this.seed = seed;
+        this.maxPhaseShift = 0;
+        this.fireDrillProbability = 0;
+        this.fireDrillDuration = 0;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Sets the maximum number of minutes by which each sensor's readings are
+     * shifted forward at the start of each scenario. Each sensor is shifted
+     * by its own random number of minutes, between 0 and the maximum.
+     *
+     * @param maxPhaseShift maximum shift in minutes, or 0 for no shift
+     * @throws IllegalArgumentException if maxPhaseShift &lt; 0
+     */
+    public void setMaxPhaseShift(int maxPhaseShift)
+            throws IllegalArgumentException {
+        if (maxPhaseShift < 0) {
+            throw new IllegalArgumentException(
+                    "Phase shift must be >= 0");
+        }
+        this.maxPhaseShift = maxPhaseShift;
+    }
+
+    /**
+     * Sets the chance of a fire drill starting in each building, each minute.
+     * <p>
+     * Each drill is for a random room type, or for all rooms, and is
+     * cancelled after the given duration.
+     *
+     * @param probability chance of a drill starting in a building each
+     *                    minute, between 0 and 1
+     * @param duration number of minutes each drill lasts
+     * @throws IllegalArgumentException if the probability is not between 0
+     * and 1, or duration &lt; 1
+     */
+    public void setFireDrills(double probability, int duration)
+            throws IllegalArgumentException {
+        if (probability < 0 || probability > 1) {
+            throw new IllegalArgumentException(
+                    "Fire drill probability must be between 0 and 1");
+        }
+        if (duration < 1) {
+            throw new IllegalArgumentException(
+                    "Fire drill duration must be >= 1");
+        }
+        this.fireDrillProbability = probability;
+        this.fireDrillDuration = duration;
+    }
+
+    /**
+     * Sets the number of scenarios run at the same time, each on its own
+     * thread.
+     *
+     * @param parallelism number of threads to use
+     * @throws IllegalArgumentException if parallelism &lt; 1
+     */
+    public void setParallelism(int parallelism)
+            throws IllegalArgumentException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be >= 1");
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Runs every scenario for the given number of minutes, recording the
+     * state and hazard level of every room at the end of each minute.
+     *
+     * @param minutes number of minutes to run each scenario for
+     * @return aggregated results of all scenarios
+     * @throws IOException if the buildings could not be copied
+     * @throws IllegalArgumentException if minutes &lt; 1
+     */
+    public ScenarioResults run(int minutes)
+            throws IOException, IllegalArgumentException {
+        if (minutes < 1) {
+            throw new IllegalArgumentException("Minutes must be >= 1");
+        }
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        BinarySnapshot.write(snapshot, this.buildings);
+        byte[] bytes = snapshot.toByteArray();
+
+        ScenarioResults results = new ScenarioResults(
+                listRooms(this.buildings), this.scenarios, minutes);
+        SplittableRandom random = new SplittableRandom(this.seed);
+        ExecutorService executor =
+                Executors.newFixedThreadPool(this.parallelism);
+        try {
+            List<Future<?>> futures = new ArrayList<>(this.scenarios);
+            for (int i = 0; i < this.scenarios; i++) {
+                SplittableRandom scenarioRandom = random.split();
+                futures.add(executor.submit(() -> {
+                    this.runScenario(bytes, scenarioRandom, minutes, results);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while running scenarios", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Scenario failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    /**
+     * Copies the buildings from a snapshot and runs a single scenario on
+     * them, adding its counts to the results.
+     *
+     * @param snapshot snapshot of the buildings
+     * @param random source of randomness for the scenario
+     * @param minutes number of minutes to run for
+     * @param results results to add the scenario's counts to
+     * @throws IOException if the buildings could not be copied
+     */
+    private void runScenario(byte[] snapshot, SplittableRandom random,
+                             int minutes, ScenarioResults results)
+            throws IOException {
+        TimedItemManager manager = new TimedItemManager();
+        List<Building> copy;
+        TimedItemManager.Scope scope = manager.makeCurrent();
+        try {
+            copy = BinarySnapshot.read(new ByteArrayInputStream(snapshot));
+        } catch (FileFormatException e) {
+            throw new IOException("Could not copy buildings", e);
+        } finally {
+            scope.close();
+        }
+        List<Room> rooms = listRooms(copy);
+
+        if (this.maxPhaseShift > 0) {
+            for (Room room : rooms) {
+                for (Sensor sensor : room.getSensorsView()) {
+                    if (sensor instanceof TimedSensor) {
+                        ((TimedSensor) sensor).advance(
+                                random.nextInt(this.maxPhaseShift + 1));
+                    }
+                }
+            }
+        }
+
+        int[] stateCounts = new int[rooms.size() * ScenarioResults.STATES];
+        int[] hazardCounts =
+                new int[rooms.size() * ScenarioResults.HAZARD_LEVELS];
+        int[] drillsEnd = new int[copy.size()];
+        RoomType[] roomTypes = RoomType.values();
+        for (int minute = 1; minute <= minutes; minute++) {
+            manager.elapseOneMinute();
+            for (int i = 0; i < copy.size(); i++) {
+                Building building = copy.get(i);
+                if (drillsEnd[i] == minute) {
+                    building.cancelFireDrill();
+                    drillsEnd[i] = 0;
+                }
+                if (drillsEnd[i] == 0 && this.fireDrillProbability > 0
+                        && random.nextDouble() < this.fireDrillProbability) {
+                    // an index one past the last room type drills all rooms
+                    int type = random.nextInt(roomTypes.length + 1);
+                    try {
+                        building.fireDrill(type == roomTypes.length ? null
+                                : roomTypes[type]);
+                        drillsEnd[i] = minute + this.fireDrillDuration;
+                    } catch (FireDrillException e) {
+                        // buildings without rooms have nothing to drill
+                    }
+                }
+            }
+            for (int r = 0; r < rooms.size(); r++) {
+                Room room = rooms.get(r);
+                RoomState state = room.evaluateRoomState();
+                stateCounts[r * ScenarioResults.STATES + state.ordinal()]++;
+                HazardEvaluator evaluator = room.getHazardEvaluator();
+                if (evaluator != null) {
+                    hazardCounts[r * ScenarioResults.HAZARD_LEVELS
+                            + evaluator.evaluateHazardLevel()]++;
+                }
+            }
+        }
+        results.add(stateCounts, hazardCounts);
+    }
+
+    /**
+     * Lists every room in the given buildings, in building, floor and room
+     * order.
+     *
+     * @param buildings buildings to list the rooms of
+     * @return list of rooms
+     */
+    private static List<Room> listRooms(List<Building> buildings) {
+        List<Room> rooms = new ArrayList<>();
+        for (Building building : buildings) {
+            for (Floor floor : building.getFloorsView()) {
+                rooms.addAll(floor.getRoomsView());
+            }
+        }
+        return rooms;
+    }
+
+    /**
+     * Entry point to the scenario runner.
+     * <p>
+     * Command line arguments: filename scenarios minutes [seed]
+     * <p>
+     * where <code>filename</code> is the path of the file containing the
+     * buildings, <code>scenarios</code> is the number of scenarios to run,
+     * <code>minutes</code> is the number of minutes to run each scenario
+     * for, and <code>seed</code> is the random seed (default 0). Sensor
+     * readings are shifted by up to a day, and each building has a 1 in 1000
+     * chance per minute of a 30 minute fire drill. The rooms most likely to
+     * need evacuating are printed.
+     *
+     * @param args command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length < 3 || args.length > 4) {
+            System.out.println("Usage: filename scenarios minutes [seed]");
+            System.exit(1);
+        }
+
+        int scenarios;
+        int minutes;
+        long seed = 0;
+        try {
+            scenarios = Integer.parseInt(args[1]);
+            minutes = Integer.parseInt(args[2]);
+            if (args.length == 4) {
+                seed = Long.parseLong(args[3]);
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("Scenarios, minutes and seed must be integers");
+            System.exit(1);
+            return;
+        }
+
+        List<Building> buildings;
+        try {
+            buildings = BuildingInitialiser.loadBuildingsStreaming(args[0]);
+        } catch (IOException | FileFormatException e) {
+            System.err.println("Error loading from file \"" + args[0]
+                    + "\". Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+            return;
+        }
+
+        try {
+            ScenarioRunner runner = new ScenarioRunner(buildings, scenarios,
+                    seed);
+            runner.setMaxPhaseShift(24 * 60);
+            runner.setFireDrills(0.001, 30);
+            ScenarioResults results = runner.run(minutes);
+            List<Room> rooms = new ArrayList<>(results.getRooms());
+            rooms.sort(Comparator.comparingDouble((Room room) -> -results
+                    .getStateProbability(room, RoomState.EVACUATE)));
+            for (Room room : rooms.subList(0, Math.min(10, rooms.size()))) {
+                System.out.printf("Room %d: evacuate %.3f, mean hazard %.1f,"
+                                + " 95th percentile hazard %d%n",
+                        room.getRoomNumber(),
+                        results.getStateProbability(room, RoomState.EVACUATE),
+                        results.getMeanHazardLevel(room),
+                        results.getHazardPercentile(room, 0.95));
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error running scenarios. Stack trace below:");
+            e.printStackTrace();
+            System.exit(1);
+        }
+    }
+}
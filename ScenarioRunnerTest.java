@@ -0,0 +1,79 @@
+package bms;
+
+import bms.building.Building;
+import bms.floor.Floor;
+import bms.hazardevaluation.RuleBasedHazardEvaluator;
+import bms.room.Room;
+import bms.room.RoomState;
+import bms.room.RoomType;
+import bms.sensors.HazardSensor;
+import bms.sensors.NoiseSensor;
+import bms.sensors.TemperatureSensor;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ScenarioRunnerTest {
+    private List<Building> buildings;
+    private Room office;
+    private Room lab;
+    private NoiseSensor noiseSensor;
+
+    @Before
+    public void setUp() throws Exception {
+        buildings = new ArrayList<>();
+        Building building = new Building("Scenario Building");
+        Floor floor = new Floor(1, 10, 10);
+        office = new Room(101, RoomType.OFFICE, 20);
+        lab = new Room(102, RoomType.LABORATORY, 30);
+        floor.addRoom(office);
+        floor.addRoom(lab);
+        building.addFloor(floor);
+        buildings.add(building);
+
+        noiseSensor = new NoiseSensor(new int[]{55, 62, 69, 80}, 1);
+        office.addSensor(noiseSensor);
+        List<HazardSensor> sensors = new ArrayList<>();
+        sensors.add(noiseSensor);
+        office.setHazardEvaluator(new RuleBasedHazardEvaluator(sensors));
+        lab.addSensor(new TemperatureSensor(new int[]{20, 70, 20}));
+    }
+
+    @Test
+    public void resultsCoverEveryMinute() throws Exception {
+        ScenarioRunner runner = new ScenarioRunner(buildings, 3, 1);
+        ScenarioResults results = runner.run(12);
+        long total = 0;
+        for (RoomState state : RoomState.values()) {
+            total += results.getStateCount(lab, state);
+        }
+        Assert.assertEquals(36, total);
+        // temperature reaches 70 for one minute in every three
+        Assert.assertEquals(12, results.getStateCount(lab, RoomState.EVACUATE));
+        long[] histogram = results.getHazardHistogram(office);
+        Assert.assertEquals(9, histogram[100]);
+        Assert.assertEquals(-1, results.getMeanHazardLevel(lab), 0);
+        Assert.assertEquals(0, noiseSensor.getTimeElapsed());
+    }
+
+    @Test
+    public void sameSeedSameResults() throws Exception {
+        ScenarioRunner runner = new ScenarioRunner(buildings, 6, 42);
+        runner.setMaxPhaseShift(10);
+        runner.setFireDrills(0.1, 3);
+        runner.setParallelism(1);
+        ScenarioResults sequential = runner.run(50);
+        runner.setParallelism(3);
+        ScenarioResults parallel = runner.run(50);
+        for (RoomState state : RoomState.values()) {
+            Assert.assertEquals(sequential.getStateCount(office, state),
+                                parallel.getStateCount(office, state));
+        }
+        Assert.assertArrayEquals(sequential.getHazardHistogram(office),
+                                 parallel.getHazardHistogram(office));
+        Assert.assertFalse(office.fireDrillOngoing());
+    }
+}
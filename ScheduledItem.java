@@ -0,0 +1,31 @@
+package bms.util;
+
+/**
+ * A timed item which can tell in advance when its observable state will next
+ * change, so does not need to be updated every minute.
+ * <p>
+ * When the {@link TimedItemManager} is event-driven (see
+ * {@link TimedItemManager#setEventDriven(boolean)}), scheduled items are only
+ * woken at the minute their state changes, and are then advanced by all the
+ * minutes that have elapsed since they were last updated.
+ */
+public interface ScheduledItem extends TimedItem {
+    /**
+     * Returns the number of minutes from the item's current time until its
+     * observable state next changes.
+     *
+     * @return number of minutes until the next change, at least one; or
+     * {@link Long#MAX_VALUE} if the state never changes
+     */
+    long minutesUntilChange();
+
+    /**
+     * Elapses the given number of minutes at once.
+     * <p>
+     * This must be equivalent to calling {@link #elapseOneMinute()} the given
+     * number of times.
+     *
+     * @param minutes non-negative number of minutes to elapse
+     */
+    void advance(long minutes);
+}
@@ -0,0 +1,329 @@
+package bms.sensors;
+
+/**
+ * Fixed-capacity history of the readings and hazard levels most recently
+ * observed by a timed sensor, one entry per minute.
+ * <p>
+ * The history is a ring buffer of primitive values, so recording a minute
+ * never allocates. The minimum, maximum and mean over the whole window are
+ * maintained incrementally as entries are recorded and expire, so each
+ * query takes constant time.
+ *
+ * @see TimedSensor#enableHistory(int)
+ */
+public class SensorHistory {
+    /**
+     * Window of sensor readings.
+     */
+    private final Window readings;
+
+    /**
+     * Window of hazard levels.
+     */
+    private final Window hazardLevels;
+
+    /**
+     * Creates a new, empty history holding the given number of minutes.
+     *
+     * @param capacity number of minutes to hold
+     * @throws IllegalArgumentException if capacity &lt; 1
+     */
+    SensorHistory(int capacity) throws IllegalArgumentException {
+        if (capacity < 1) {
+            throw new IllegalArgumentException(
+                    "History capacity must be >= 1");
+        }
+        this.readings = new Window(capacity);
+        this.hazardLevels = new Window(capacity);
+    }
+
+    /**
+     * Records the reading and hazard level observed in a minute, discarding
+     * the oldest minute if the history is full.
+     *
+     * @param reading sensor reading observed
+     * @param hazardLevel hazard level observed
+     */
+    void record(int reading, int hazardLevel) {
+        this.readings.add(reading);
+        this.hazardLevels.add(hazardLevel);
+    }
+
+    /**
+     * Returns the maximum number of minutes held by the history.
+     *
+     * @return capacity of the history
+     */
+    public int getCapacity() {
+        return this.readings.values.length;
+    }
+
+    /**
+     * Returns the number of minutes currently held by the history.
+     *
+     * @return number of minutes recorded, up to the capacity
+     */
+    public int size() {
+        return (int) Math.min(this.readings.count,
+                this.readings.values.length);
+    }
+
+    /**
+     * Returns the reading observed the given number of minutes before the
+     * most recent minute.
+     *
+     * @param age number of minutes ago, where 0 is the most recent minute
+     * @return sensor reading observed
+     * @throws IndexOutOfBoundsException if age &lt; 0 or age &gt;= size()
+     */
+    public int getReading(int age) throws IndexOutOfBoundsException {
+        return this.readings.get(this.checkAge(age));
+    }
+
+    /**
+     * Returns the hazard level observed the given number of minutes before
+     * the most recent minute.
+     *
+     * @param age number of minutes ago, where 0 is the most recent minute
+     * @return hazard level observed
+     * @throws IndexOutOfBoundsException if age &lt; 0 or age &gt;= size()
+     */
+    public int getHazardLevel(int age) throws IndexOutOfBoundsException {
+        return this.hazardLevels.get(this.checkAge(age));
+    }
+
+    /**
+     * Returns the lowest reading held by the history.
+     *
+     * @return minimum reading
+     */
+    public int getMinReading() {
+        return this.readings.min();
+    }
+
+    /**
+     * Returns the highest reading held by the history.
+     *
+     * @return maximum reading
+     */
+    public int getMaxReading() {
+        return this.readings.max();
+    }
+
+    /**
+     * Returns the mean of the readings held by the history.
+     *
+     * @return mean reading
+     */
+    public double getMeanReading() {
+        return this.readings.mean();
+    }
+
+    /**
+     * Returns the lowest hazard level held by the history.
+     *
+     * @return minimum hazard level
+     */
+    public int getMinHazardLevel() {
+        return this.hazardLevels.min();
+    }
+
+    /**
+     * Returns the highest hazard level held by the history.
+     *
+     * @return maximum hazard level
+     */
+    public int getMaxHazardLevel() {
+        return this.hazardLevels.max();
+    }
+
+    /**
+     * Returns the mean of the hazard levels held by the history.
+     *
+     * @return mean hazard level
+     */
+    public double getMeanHazardLevel() {
+        return this.hazardLevels.mean();
+    }
+
+    /**
+     * Checks that the given age is within the history.
+     *
+     * @param age number of minutes ago
+     * @return the given age
+     * @throws IndexOutOfBoundsException if age &lt; 0 or age &gt;= size()
+     */
+    private int checkAge(int age) throws IndexOutOfBoundsException {
+        if (age < 0 || age >= this.size()) {
+            throw new IndexOutOfBoundsException("Age " + age
+                    + " out of range for history of " + this.size()
+                    + " minutes");
+        }
+        return age;
+    }
+
+    /**
+     * Sliding window of integer values, with running minimum, maximum and
+     * sum.
+     * <p>
+     * The minimum and maximum are kept using monotonic queues of the
+     * positions of candidate values: each value is added once and removed at
+     * most once, so updates take amortised constant time.
+     */
+    private static final class Window {
+        /**
+         * Values in the window, indexed by position modulo the capacity.
+         */
+        private final int[] values;
+
+        /**
+         * Positions of candidate minimums, in a ring. Their values increase
+         * from the head of the queue.
+         */
+        private final long[] minQueue;
+
+        /**
+         * Positions of candidate maximums, in a ring. Their values decrease
+         * from the head of the queue.
+         */
+        private final long[] maxQueue;
+
+        /**
+         * Index of the head of {@link #minQueue}.
+         */
+        private int minHead;
+
+        /**
+         * Number of positions in {@link #minQueue}.
+         */
+        private int minSize;
+
+        /**
+         * Index of the head of {@link #maxQueue}.
+         */
+        private int maxHead;
+
+        /**
+         * Number of positions in {@link #maxQueue}.
+         */
+        private int maxSize;
+
+        /**
+         * Number of values ever added, which is also the position of the
+         * next value.
+         */
+        private long count;
+
+        /**
+         * Sum of the values in the window.
+         */
+        private long sum;
+
+        /**
+         * Creates a new, empty window.
+         *
+         * @param capacity number of values held by the window
+         */
+        private Window(int capacity) {
+            this.values = new int[capacity];
+            this.minQueue = new long[capacity];
+            this.maxQueue = new long[capacity];
+        }
+
+        /**
+         * Adds a value to the window, discarding the oldest value if the
+         * window is full.
+         *
+         * @param value value to add
+         */
+        private void add(int value) {
+            int capacity = this.values.length;
+            int slot = (int) (this.count % capacity);
+            if (this.count >= capacity) {
+                this.sum -= this.values[slot];
+            }
+            this.values[slot] = value;
+            this.sum += value;
+
+            // discard the position that has just left the window
+            long expired = this.count - capacity;
+            if (this.minSize > 0 && this.minQueue[this.minHead] == expired) {
+                this.minHead = (this.minHead + 1) % capacity;
+                this.minSize--;
+            }
+            if (this.maxSize > 0 && this.maxQueue[this.maxHead] == expired) {
+                this.maxHead = (this.maxHead + 1) % capacity;
+                this.maxSize--;
+            }
+
+            // values no better than the new value can never be the minimum
+            // or maximum again
+            while (this.minSize > 0 && this.valueAt(this.minQueue[
+                    (this.minHead + this.minSize - 1) % capacity]) >= value) {
+                this.minSize--;
+            }
+            this.minQueue[(this.minHead + this.minSize) % capacity] =
+                    this.count;
+            this.minSize++;
+            while (this.maxSize > 0 && this.valueAt(this.maxQueue[
+                    (this.maxHead + this.maxSize - 1) % capacity]) <= value) {
+                this.maxSize--;
+            }
+            this.maxQueue[(this.maxHead + this.maxSize) % capacity] =
+                    this.count;
+            this.maxSize++;
+
+            this.count++;
+        }
+
+        /**
+         * Returns the value at the given position, which must be within the
+         * window.
+         *
+         * @param position position of the value
+         * @return value at the position
+         */
+        private int valueAt(long position) {
+            return this.values[(int) (position % this.values.length)];
+        }
+
+        /**
+         * Returns the value added the given number of values before the most
+         * recent value.
+         *
+         * @param age number of values ago, within the window
+         * @return value added
+         */
+        private int get(int age) {
+            return this.valueAt(this.count - 1 - age);
+        }
+
+        /**
+         * Returns the smallest value in the window.
+         *
+         * @return minimum value
+         */
+        private int min() {
+            return this.valueAt(this.minQueue[this.minHead]);
+        }
+
+        /**
+         * Returns the largest value in the window.
+         *
+         * @return maximum value
+         */
+        private int max() {
+            return this.valueAt(this.maxQueue[this.maxHead]);
+        }
+
+        /**
+         * Returns the mean of the values in the window.
+         *
+         * @return mean value
+         */
+        private double mean() {
+            return (double) this.sum
+                    / Math.min(this.count, this.values.length);
+        }
+    }
+}
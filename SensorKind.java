@@ -0,0 +1,97 @@
+package bms.sensors;
+
+/**
+ * Enum to represent the concrete types of sensor that may be placed in a
+ * room.
+ * <p>
+ * Constants are declared in alphabetical order of the sensor class names, so
+ * {@link #ordinal()} gives the position of a sensor of that kind within a
+ * room's list of sensors.
+ */
+public enum SensorKind {
+    CARBON_DIOXIDE(CarbonDioxideSensor.class),
+    NOISE(NoiseSensor.class),
+    OCCUPANCY(OccupancySensor.class),
+    TEMPERATURE(TemperatureSensor.class);
+
+    /**
+     * Cached copy of {@link #values()}, which allocates on every call.
+     */
+    private static final SensorKind[] KINDS = values();
+
+    /**
+     * Class of sensor represented by this kind.
+     */
+    private final Class<? extends Sensor> sensorClass;
+
+    SensorKind(Class<? extends Sensor> sensorClass) {
+        this.sensorClass = sensorClass;
+    }
+
+    /**
+     * Returns the class of sensor represented by this kind.
+     *
+     * @return sensor class
+     */
+    public Class<? extends Sensor> getSensorClass() {
+        return sensorClass;
+    }
+
+    /**
+     * Returns the number of sensor kinds.
+     *
+     * @return number of sensor kinds
+     */
+    public static int count() {
+        return KINDS.length;
+    }
+
+    /**
+     * Returns the kind of the given sensor.
+     * <p>
+     * Only sensors whose class is exactly one of the known types have a kind,
+     * matching the way rooms compare sensor types by their exact class. A
+     * subclass of a known type, such as a subclass of {@link NoiseSensor}, is
+     * a different type of sensor and has no kind.
+     *
+     * @param sensor sensor to classify
+     * @return kind of the sensor; null if it is not one of the known types
+     */
+    public static SensorKind of(Sensor sensor) {
+        if (sensor == null) {
+            return null;
+        }
+        Class<?> sensorClass = sensor.getClass();
+        for (SensorKind kind : KINDS) {
+            if (kind.sensorClass == sensorClass) {
+                return kind;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the kind of sensor with the given simple class name, as
+     * returned by {@link Class#getSimpleName()}, e.g. "NoiseSensor".
+     *
+     * @param className simple class name of the sensor type
+     * @return matching kind; null if there is no sensor type with that name
+     */
+    public static SensorKind fromClassName(String className) {
+        if (className == null) {
+            return null;
+        }
+        switch (className) {
+            case "CarbonDioxideSensor":
+                return CARBON_DIOXIDE;
+            case "NoiseSensor":
+                return NOISE;
+            case "OccupancySensor":
+                return OCCUPANCY;
+            case "TemperatureSensor":
+                return TEMPERATURE;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package bms.sensors;
+
+import bms.exceptions.DuplicateSensorException;
+import bms.room.Room;
+import bms.room.RoomType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SensorKindTest {
+    private static class LoudNoiseSensor extends NoiseSensor {
+        LoudNoiseSensor() {
+            super(new int[]{90, 95}, 1);
+        }
+    }
+
+    @Test
+    public void kindMatchesExactClass() {
+        Assert.assertEquals(SensorKind.NOISE,
+                SensorKind.of(new NoiseSensor(new int[]{55, 62}, 1)));
+        Assert.assertNull(SensorKind.of(new LoudNoiseSensor()));
+        Assert.assertNull(SensorKind.of(null));
+    }
+
+    @Test
+    public void roomAcceptsSubclassOfKnownSensor() throws Exception {
+        Room room = new Room(101, RoomType.OFFICE, 20);
+        NoiseSensor noise = new NoiseSensor(new int[]{55, 62}, 1);
+        TemperatureSensor temperature = new TemperatureSensor(new int[]{20});
+        room.addSensor(temperature);
+        room.addSensor(noise);
+        // a subclass is a different type of sensor, so must not be treated
+        // as a duplicate noise sensor
+        Sensor loud = new LoudNoiseSensor();
+        room.addSensor(loud);
+        Assert.assertEquals(3, room.getSensors().size());
+        Assert.assertSame(loud, room.getSensors().get(0));
+        Assert.assertSame(noise, room.getSensors().get(1));
+        Assert.assertSame(temperature, room.getSensors().get(2));
+        Assert.assertSame(loud, room.getSensor("LoudNoiseSensor"));
+        Assert.assertSame(noise, room.getSensor("NoiseSensor"));
+        Assert.assertSame(noise, room.getSensor(SensorKind.NOISE));
+    }
+
+    @Test(expected = DuplicateSensorException.class)
+    public void roomRejectsDuplicateSubclass() throws Exception {
+        Room room = new Room(101, RoomType.OFFICE, 20);
+        room.addSensor(new LoudNoiseSensor());
+        room.addSensor(new LoudNoiseSensor());
+    }
+}
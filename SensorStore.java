@@ -0,0 +1,305 @@
+package bms.sensors;
+
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Columnar storage for the readings and timing state of many timed sensors.
+ * <p>
+ * Sensors created with a store (see
+ * {@link TimedSensor#TimedSensor(SensorStore, int[], int)}) do not keep their
+ * own state. Their readings are packed one after another into large shared
+ * arrays, and their time elapsed and current position are kept in primitive
+ * columns indexed by slot. The sensors themselves are lightweight views over
+ * their slot.
+ * <p>
+ * The store registers itself as a single timed item and advances every
+ * sensor it holds in one sequential sweep over its columns, so sensors in a
+ * store are not registered with the {@link TimedItemManager} individually.
+ * <p>
+ * For the best locality, sensors of the same type should be kept together
+ * in a store of their own.
+ */
+public class SensorStore implements TimedItem {
+    /**
+     * Number of readings held by each shared readings array.
+     */
+    private static final int CHUNK_SIZE = 1 << 20;
+
+    /**
+     * Initial number of slots allocated in each column.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Shared readings array currently being filled.
+     */
+    private int[] chunk;
+
+    /**
+     * Number of readings used in the current chunk.
+     */
+    private int chunkUsed;
+
+    /**
+     * Readings array holding each slot's readings.
+     */
+    private int[][] chunks;
+
+    /**
+     * Position of each slot's first reading within its readings array.
+     */
+    private int[] offsets;
+
+    /**
+     * Number of readings of each slot.
+     */
+    private int[] lengths;
+
+    /**
+     * Update frequency of each slot, in minutes.
+     */
+    private int[] frequencies;
+
+    /**
+     * Minutes elapsed by each slot.
+     */
+    private long[] timesElapsed;
+
+    /**
+     * Position of each slot's current reading, relative to its first
+     * reading.
+     */
+    private int[] currentIndices;
+
+    /**
+     * Minutes remaining until each slot moves on to its next reading.
+     */
+    private int[] countdowns;
+
+    /**
+     * Number of slots in use.
+     */
+    private int size;
+
+    /**
+     * First slot holding each distinct sequence of readings, so that
+     * sensors with identical readings share them.
+     */
+    private Map<ReadingsPool.Key, Integer> slotsByReadings;
+
+    /**
+     * Creates a new, empty sensor store and registers it as a timed item.
+     */
+    public SensorStore() {
+        this.chunk = new int[0];
+        this.chunkUsed = 0;
+        this.chunks = new int[INITIAL_CAPACITY][];
+        this.offsets = new int[INITIAL_CAPACITY];
+        this.lengths = new int[INITIAL_CAPACITY];
+        this.frequencies = new int[INITIAL_CAPACITY];
+        this.timesElapsed = new long[INITIAL_CAPACITY];
+        this.currentIndices = new int[INITIAL_CAPACITY];
+        this.countdowns = new int[INITIAL_CAPACITY];
+        this.size = 0;
+        this.slotsByReadings = new HashMap<>();
+        TimedItemManager.getInstance().registerTimedItem(this);
+    }
+
+    /**
+     * Returns the number of sensors held by this store.
+     *
+     * @return number of sensors
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Adds a sensor's readings to the store. The readings are copied, and
+     * should already have been validated by the sensor. If the store already
+     * holds identical readings, they are shared rather than copied again.
+     *
+     * @param readings non-empty array of sensor readings
+     * @param updateFrequency update frequency of the sensor, in minutes
+     * @return slot holding the sensor's state
+     */
+    int add(int[] readings, int updateFrequency) {
+        if (this.size == this.offsets.length) {
+            this.grow();
+        }
+        ReadingsPool.Key key =
+                new ReadingsPool.StrongKey(readings, 0, readings.length);
+        Integer existing = this.slotsByReadings.get(key);
+        int[] target;
+        int offset;
+        if (existing != null) {
+            target = this.chunks[existing];
+            offset = this.offsets[existing];
+        } else if (readings.length > CHUNK_SIZE) {
+            // too large to share, so give the sensor an array of its own
+            target = Arrays.copyOf(readings, readings.length);
+            offset = 0;
+        } else {
+            if (this.chunkUsed + readings.length > this.chunk.length) {
+                this.chunk = new int[CHUNK_SIZE];
+                this.chunkUsed = 0;
+            }
+            target = this.chunk;
+            offset = this.chunkUsed;
+            System.arraycopy(readings, 0, target, offset, readings.length);
+            this.chunkUsed += readings.length;
+        }
+
+        int slot = this.size++;
+        if (existing == null) {
+            this.slotsByReadings.put(new ReadingsPool.StrongKey(target,
+                    offset, readings.length), slot);
+        }
+        this.chunks[slot] = target;
+        this.offsets[slot] = offset;
+        this.lengths[slot] = readings.length;
+        this.frequencies[slot] = updateFrequency;
+        this.timesElapsed[slot] = 0;
+        this.currentIndices[slot] = 0;
+        this.countdowns[slot] = updateFrequency;
+        return slot;
+    }
+
+    /**
+     * Removes every sensor added to the store after it held the given number
+     * of sensors, such as sensors whose construction failed after they were
+     * added. The removed sensors must not be used afterwards.
+     *
+     * @param size number of sensors to keep
+     * @throws IllegalArgumentException if size is negative or greater than
+     * the number of sensors held by the store
+     */
+    public void truncate(int size) {
+        if (size < 0 || size > this.size) {
+            throw new IllegalArgumentException("Cannot truncate a store of "
+                    + this.size + " sensors to " + size);
+        }
+        for (int slot = this.size - 1; slot >= size; slot--) {
+            ReadingsPool.Key key = new ReadingsPool.StrongKey(
+                    this.chunks[slot], this.offsets[slot], this.lengths[slot]);
+            Integer owner = this.slotsByReadings.get(key);
+            if (owner != null && owner == slot) {
+                this.slotsByReadings.remove(key);
+                // reclaim the readings if they were the last ones copied
+                if (this.chunks[slot] == this.chunk && this.offsets[slot]
+                        + this.lengths[slot] == this.chunkUsed) {
+                    this.chunkUsed = this.offsets[slot];
+                }
+            }
+            this.chunks[slot] = null;
+        }
+        this.size = size;
+    }
+
+    /**
+     * Doubles the capacity of every column.
+     */
+    private void grow() {
+        int capacity = this.offsets.length * 2;
+        this.chunks = Arrays.copyOf(this.chunks, capacity);
+        this.offsets = Arrays.copyOf(this.offsets, capacity);
+        this.lengths = Arrays.copyOf(this.lengths, capacity);
+        this.frequencies = Arrays.copyOf(this.frequencies, capacity);
+        this.timesElapsed = Arrays.copyOf(this.timesElapsed, capacity);
+        this.currentIndices = Arrays.copyOf(this.currentIndices, capacity);
+        this.countdowns = Arrays.copyOf(this.countdowns, capacity);
+    }
+
+    /**
+     * Returns the array holding the given slot's readings. The array never
+     * changes for the lifetime of the store.
+     *
+     * @param slot slot of the sensor
+     * @return readings array, shared with other sensors
+     */
+    int[] getReadings(int slot) {
+        return this.chunks[slot];
+    }
+
+    /**
+     * Returns the position of the given slot's first reading within its
+     * readings array.
+     *
+     * @param slot slot of the sensor
+     * @return offset of the first reading
+     */
+    int getOffset(int slot) {
+        return this.offsets[slot];
+    }
+
+    /**
+     * Returns the number of minutes the given slot has elapsed.
+     *
+     * @param slot slot of the sensor
+     * @return time elapsed in minutes
+     */
+    long getTimeElapsed(int slot) {
+        return this.timesElapsed[slot];
+    }
+
+    /**
+     * Returns the position of the given slot's current reading, relative to
+     * its first reading.
+     *
+     * @param slot slot of the sensor
+     * @return index of the current reading
+     */
+    int getCurrentIndex(int slot) {
+        return this.currentIndices[slot];
+    }
+
+    /**
+     * Increments the time elapsed of the given slot by the given
+     * non-negative number of minutes.
+     *
+     * @param slot slot of the sensor
+     * @param minutes number of minutes to elapse
+     */
+    void advance(int slot, long minutes) {
+        long timeElapsed = this.timesElapsed[slot] + minutes;
+        int frequency = this.frequencies[slot];
+        this.timesElapsed[slot] = timeElapsed;
+        this.currentIndices[slot] =
+                (int) ((timeElapsed / frequency) % this.lengths[slot]);
+        this.countdowns[slot] = frequency - (int) (timeElapsed % frequency);
+    }
+
+    /**
+     * Advances every sensor in the store by one minute.
+     */
+    @Override
+    public void elapseOneMinute() {
+        long[] timesElapsed = this.timesElapsed;
+        int[] countdowns = this.countdowns;
+        int[] currentIndices = this.currentIndices;
+        for (int slot = 0; slot < this.size; slot++) {
+            timesElapsed[slot]++;
+            if (--countdowns[slot] == 0) {
+                countdowns[slot] = this.frequencies[slot];
+                int next = currentIndices[slot] + 1;
+                currentIndices[slot] = next == this.lengths[slot] ? 0 : next;
+            }
+        }
+    }
+
+    /**
+     * The store only updates the sensors it holds, so may be updated
+     * concurrently with other independent items.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isIndependent() {
+        return true;
+    }
+}
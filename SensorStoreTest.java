@@ -0,0 +1,85 @@
+package bms.sensors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SensorStoreTest {
+    private SensorStore store;
+    private NoiseSensor stored;
+    private NoiseSensor standalone;
+
+    @Before
+    public void setUp() {
+        store = new SensorStore();
+        // fill part of the store first so the sensor has a non-zero offset
+        new TemperatureSensor(store, new int[]{20, 21, 22});
+        stored = new NoiseSensor(store, new int[]{55, 62, 69, 63, 80}, 3);
+        standalone = new NoiseSensor(new int[]{55, 62, 69, 63, 80}, 3);
+    }
+
+    @Test
+    public void storeHoldsSensors() {
+        Assert.assertEquals(2, store.size());
+        Assert.assertEquals(5, stored.getReadingsLength());
+        Assert.assertEquals(63, stored.getReading(3));
+    }
+
+    @Test
+    public void sweepMatchesStandalone() {
+        for (int minute = 1; minute <= 40; minute++) {
+            store.elapseOneMinute();
+            standalone.elapseOneMinute();
+            Assert.assertEquals(minute, stored.getTimeElapsed());
+            Assert.assertEquals(standalone.getCurrentReading(),
+                                stored.getCurrentReading());
+            Assert.assertEquals(standalone.getHazardLevel(),
+                                stored.getHazardLevel());
+        }
+    }
+
+    @Test
+    public void advanceThenSweep() {
+        stored.advance(7);
+        standalone.advance(7);
+        for (int minute = 0; minute < 10; minute++) {
+            Assert.assertEquals(standalone.getCurrentReading(),
+                                stored.getCurrentReading());
+            store.elapseOneMinute();
+            standalone.elapseOneMinute();
+        }
+    }
+
+    @Test
+    public void storedSensorEqualsStandalone() {
+        Assert.assertEquals(standalone, stored);
+        Assert.assertEquals(standalone.hashCode(), stored.hashCode());
+        Assert.assertEquals(standalone.encode(), stored.encode());
+        Assert.assertEquals(standalone.toString(), stored.toString());
+    }
+
+    @Test
+    public void failedConstructionReleasesSlot() {
+        try {
+            new CarbonDioxideSensor(store, new int[]{380, 420, 700}, 2, 0, 50);
+            Assert.fail("Sensor with an invalid ideal value was created");
+        } catch (IllegalArgumentException expected) {
+            // the ideal value is invalid
+        }
+        Assert.assertEquals(2, store.size());
+
+        CarbonDioxideSensor sensor = new CarbonDioxideSensor(store,
+                new int[]{380, 420, 700}, 2, 400, 50);
+        Assert.assertEquals(3, store.size());
+        for (int minute = 0; minute < 4; minute++) {
+            store.elapseOneMinute();
+        }
+        Assert.assertEquals(4, sensor.getTimeElapsed());
+        Assert.assertEquals(700, sensor.getCurrentReading());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void readingOutsideSensor() {
+        stored.getReading(5);
+    }
+}
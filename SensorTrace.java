@@ -0,0 +1,370 @@
+package bms.sensors;
+
+import bms.exceptions.FileFormatException;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A file of recorded sensor readings, memory-mapped so that the readings are
+ * held outside of the Java heap.
+ * <p>
+ * A trace holds the readings of any number of sensors, one after another.
+ * Sensors created from a trace (for example
+ * {@link NoiseSensor#NoiseSensor(SensorTrace, int, int)}) read their readings
+ * directly from the mapped file, so traces many times larger than the heap
+ * can be simulated. The operating system pages readings in and out as
+ * required.
+ * <p>
+ * A trace file begins with the magic number "BMST" and a format version.
+ * These are followed by the readings of every sensor as little-endian 32-bit
+ * integers, then the number of readings of each sensor, and finally the
+ * number of sensors. Trace files are written with {@link Writer}.
+ * <p>
+ * A trace keeps its file open until it is closed. Sensors created from a
+ * trace read from the file for as long as they are used, so must not be used
+ * after the trace is closed.
+ */
+public class SensorTrace implements Closeable {
+    /**
+     * Magic number at the start of every trace file ("BMST").
+     */
+    private static final int MAGIC = 0x424D5354;
+
+    /**
+     * Version of the trace format.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Number of bytes before the first reading.
+     */
+    private static final int HEADER_SIZE = 8;
+
+    /**
+     * Size of each region of the file mapped at once, in bytes.
+     */
+    private static final long WINDOW_SIZE = 1L << 30;
+
+    /**
+     * File channel the trace is mapped from.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Position in the file of each sensor's first reading, in bytes, with
+     * one extra entry marking the end of the readings.
+     */
+    private final long[] starts;
+
+    /**
+     * Regions of the file mapped so far; null until first used.
+     */
+    private final MappedByteBuffer[] windows;
+
+    /**
+     * Creates a new trace over the given open file channel.
+     *
+     * @param channel channel to map readings from
+     * @param starts position of each sensor's first reading
+     */
+    private SensorTrace(FileChannel channel, long[] starts) {
+        this.channel = channel;
+        this.starts = starts;
+        long readingsEnd = starts[starts.length - 1];
+        this.windows = new MappedByteBuffer[
+                (int) ((readingsEnd + WINDOW_SIZE - 1) / WINDOW_SIZE)];
+    }
+
+    /**
+     * Opens the trace file at the given path.
+     * <p>
+     * Only the list of sensors is read from the file; readings are mapped
+     * into memory as sensors are created.
+     *
+     * @param file path of the trace file
+     * @return trace read from the file
+     * @throws IOException if an IOException is encountered when reading
+     * @throws FileFormatException if the file is not a valid trace file
+     */
+    public static SensorTrace open(Path file)
+            throws IOException, FileFormatException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < HEADER_SIZE + 4) {
+                throw new FileFormatException();
+            }
+            ByteBuffer header = read(channel, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new FileFormatException();
+            }
+
+            int numSensors = read(channel, size - 4, 4).getInt();
+            long lengthsStart = size - 4 - 4L * numSensors;
+            if (numSensors < 0 || lengthsStart < HEADER_SIZE) {
+                throw new FileFormatException();
+            }
+            ByteBuffer lengths = read(channel, lengthsStart, 4 * numSensors);
+            long[] starts = new long[numSensors + 1];
+            starts[0] = HEADER_SIZE;
+            for (int i = 0; i < numSensors; i++) {
+                int length = lengths.getInt();
+                if (length < 0) {
+                    throw new FileFormatException();
+                }
+                starts[i + 1] = starts[i] + 4L * length;
+            }
+            if (starts[numSensors] != lengthsStart) {
+                throw new FileFormatException();
+            }
+            return new SensorTrace(channel, starts);
+        } catch (IOException | FileFormatException
+                | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the given number of bytes from the given position in a channel.
+     *
+     * @param channel channel to read from
+     * @param position position of the first byte
+     * @param length number of bytes to read
+     * @return little-endian buffer holding the bytes, ready for reading
+     * @throws IOException if an IOException is encountered when reading
+     * @throws FileFormatException if the channel ends before all bytes are
+     * read
+     */
+    private static ByteBuffer read(FileChannel channel, long position,
+                                   int length)
+            throws IOException, FileFormatException {
+        ByteBuffer buffer = ByteBuffer.allocate(length)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new FileFormatException();
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Returns the number of sensors recorded in this trace.
+     *
+     * @return number of sensors
+     */
+    public int getSensorCount() {
+        return this.starts.length - 1;
+    }
+
+    /**
+     * Returns the number of readings recorded for the given sensor.
+     *
+     * @param sensor index of the sensor in the trace
+     * @return number of readings
+     * @throws IndexOutOfBoundsException if there is no sensor with the given
+     * index
+     */
+    public int getReadingsLength(int sensor)
+            throws IndexOutOfBoundsException {
+        if (sensor < 0 || sensor >= this.getSensorCount()) {
+            throw new IndexOutOfBoundsException("No sensor " + sensor
+                    + " in trace of " + this.getSensorCount() + " sensors");
+        }
+        return (int) ((this.starts[sensor + 1] - this.starts[sensor]) / 4);
+    }
+
+    /**
+     * Returns the readings recorded for the given sensor, mapped from the
+     * trace file.
+     *
+     * @param sensor index of the sensor in the trace
+     * @return read-only buffer of the sensor's readings
+     * @throws IndexOutOfBoundsException if there is no sensor with the given
+     * index
+     * @throws IllegalStateException if the trace has been closed
+     * @throws UncheckedIOException if the readings could not be mapped
+     */
+    synchronized IntBuffer getReadings(int sensor)
+            throws IndexOutOfBoundsException, IllegalStateException {
+        if (!this.channel.isOpen()) {
+            throw new IllegalStateException("Trace has been closed");
+        }
+        int length = this.getReadingsLength(sensor);
+        long start = this.starts[sensor];
+        long end = this.starts[sensor + 1];
+        try {
+            int window = (int) (start / WINDOW_SIZE);
+            if (length == 0 || window != (end - 1) / WINDOW_SIZE) {
+                // the readings cross a window boundary, so map them alone
+                return this.channel.map(FileChannel.MapMode.READ_ONLY,
+                        start, end - start)
+                        .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+            }
+            if (this.windows[window] == null) {
+                long windowStart = window * WINDOW_SIZE;
+                long windowEnd = Math.min(windowStart + WINDOW_SIZE,
+                        this.starts[this.starts.length - 1]);
+                this.windows[window] = this.channel.map(
+                        FileChannel.MapMode.READ_ONLY, windowStart,
+                        windowEnd - windowStart);
+            }
+            ByteBuffer readings = this.windows[window].duplicate();
+            int offset = (int) (start - window * WINDOW_SIZE);
+            readings.position(offset).limit(offset + 4 * length);
+            return readings.slice().order(ByteOrder.LITTLE_ENDIAN)
+                    .asIntBuffer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Closes the trace file. Sensors created from the trace must not be used
+     * afterwards.
+     *
+     * @throws IOException if an IOException is encountered when closing
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        Arrays.fill(this.windows, null);
+        this.channel.close();
+    }
+
+    /**
+     * Writes a trace file, one sensor at a time.
+     * <p>
+     * Readings are streamed to the file as they are written, so traces of
+     * any size can be written without holding them in memory.
+     */
+    public static class Writer implements Closeable {
+        /**
+         * Output stream to the trace file.
+         */
+        private DataOutputStream output;
+
+        /**
+         * Number of readings written for each sensor.
+         */
+        private List<Integer> lengths;
+
+        /**
+         * Number of readings written for the current sensor.
+         */
+        private int currentLength;
+
+        /**
+         * Creates a new trace file at the given path, overwriting any
+         * existing file.
+         *
+         * @param file path of the trace file
+         * @throws IOException if an IOException is encountered when writing
+         */
+        public Writer(Path file) throws IOException {
+            this.output = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(file.toFile()), 1 << 16));
+            this.lengths = new ArrayList<>();
+            this.currentLength = -1;
+            this.writeInt(MAGIC);
+            this.writeInt(VERSION);
+        }
+
+        /**
+         * Starts the readings of the next sensor in the trace.
+         */
+        public void beginSensor() {
+            this.endSensor();
+            this.currentLength = 0;
+        }
+
+        /**
+         * Records the number of readings of the current sensor, if any.
+         */
+        private void endSensor() {
+            if (this.currentLength >= 0) {
+                this.lengths.add(this.currentLength);
+            }
+            this.currentLength = -1;
+        }
+
+        /**
+         * Appends a reading to the current sensor.
+         *
+         * @param reading sensor reading
+         * @throws IllegalStateException if no sensor has been started
+         * @throws IllegalArgumentException if the reading is negative
+         * @throws IOException if an IOException is encountered when writing
+         */
+        public void writeReading(int reading) throws IOException {
+            if (this.currentLength < 0) {
+                throw new IllegalStateException("No sensor started");
+            }
+            if (reading < 0) {
+                throw new IllegalArgumentException(
+                        "All sensor readings must be non-negative");
+            }
+            this.writeInt(reading);
+            this.currentLength++;
+        }
+
+        /**
+         * Writes all of the given readings as the next sensor in the trace.
+         *
+         * @param readings sensor readings
+         * @throws IllegalArgumentException if any reading is negative
+         * @throws IOException if an IOException is encountered when writing
+         */
+        public void writeSensor(int[] readings) throws IOException {
+            this.beginSensor();
+            for (int reading : readings) {
+                this.writeReading(reading);
+            }
+            this.endSensor();
+        }
+
+        /**
+         * Writes an integer in little-endian byte order.
+         *
+         * @param value integer to write
+         * @throws IOException if an IOException is encountered when writing
+         */
+        private void writeInt(int value) throws IOException {
+            this.output.writeInt(Integer.reverseBytes(value));
+        }
+
+        /**
+         * Writes the list of sensors and closes the file.
+         *
+         * @throws IOException if an IOException is encountered when writing
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                this.endSensor();
+                for (int length : this.lengths) {
+                    this.writeInt(length);
+                }
+                this.writeInt(this.lengths.size());
+            } finally {
+                this.output.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package bms.sensors;
+
+import bms.exceptions.FileFormatException;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class SensorTraceTest {
+    private static final int[] NOISE_READINGS = {55, 62, 69, 63, 80};
+    private static final int[] OCCUPANCY_READINGS = {3, 12, 25, 30, 41};
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = Files.createTempFile("trace", ".bin");
+        file.toFile().deleteOnExit();
+        try (SensorTrace.Writer writer = new SensorTrace.Writer(file)) {
+            writer.writeSensor(NOISE_READINGS);
+            writer.beginSensor();
+            for (int reading : OCCUPANCY_READINGS) {
+                writer.writeReading(reading);
+            }
+        }
+    }
+
+    @Test
+    public void traceListsSensors() throws Exception {
+        try (SensorTrace trace = SensorTrace.open(file)) {
+            Assert.assertEquals(2, trace.getSensorCount());
+            Assert.assertEquals(5, trace.getReadingsLength(0));
+            Assert.assertEquals(5, trace.getReadingsLength(1));
+        }
+    }
+
+    @Test
+    public void tracedSensorMatchesArraySensor() throws Exception {
+        try (SensorTrace trace = SensorTrace.open(file)) {
+            OccupancySensor traced = new OccupancySensor(trace, 1, 2, 40);
+            OccupancySensor array =
+                    new OccupancySensor(OCCUPANCY_READINGS, 2, 40);
+            Assert.assertTrue(traced.hasOffHeapReadings());
+            Assert.assertEquals(array, traced);
+            Assert.assertEquals(array.encode(), traced.encode());
+            for (int minute = 0; minute < 25; minute++) {
+                Assert.assertEquals(array.getCurrentReading(),
+                                    traced.getCurrentReading());
+                Assert.assertEquals(array.getHazardLevel(),
+                                    traced.getHazardLevel());
+                Assert.assertEquals(array.getComfortLevel(),
+                                    traced.getComfortLevel());
+                traced.elapseOneMinute();
+                array.elapseOneMinute();
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closedTrace() throws Exception {
+        SensorTrace trace = SensorTrace.open(file);
+        trace.close();
+        new NoiseSensor(trace, 0, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingSensor() throws Exception {
+        try (SensorTrace trace = SensorTrace.open(file)) {
+            new NoiseSensor(trace, 2, 1);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeReading() throws Exception {
+        try (SensorTrace.Writer writer = new SensorTrace.Writer(file)) {
+            writer.writeSensor(new int[]{1, -2});
+        }
+    }
+
+    @Test(expected = FileFormatException.class)
+    public void notATrace() throws Exception {
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        SensorTrace.open(file);
+    }
+}
@@ -51,7 +51,9 @@ public class StudyRoomRecommender {
         if (room == null) {
             return 0;
         }
-        for (Sensor sensor : room.getSensors()) {
+        List<Sensor> sensors = room.getSensorsView();
+        for (int i = 0; i < sensors.size(); i++) {
+            Sensor sensor = sensors.get(i);
             if (sensor instanceof ComfortSensor) {
                 total += ((ComfortSensor) sensor).getComfortLevel();
                 count++;
@@ -72,9 +74,8 @@ public class StudyRoomRecommender {
      */
     private static Room bestRoomInFloor(Floor floor) {
         Room bestRoom = null;
-        List<Room> rooms = floor.getRooms();
-        rooms = filterList(rooms, room -> room.evaluateRoomState()
-                == RoomState.OPEN);
+        List<Room> rooms = filterList(floor.getRoomsView(),
+                room -> room.evaluateRoomState() == RoomState.OPEN);
         rooms = filterList(rooms, room -> room.getType() == RoomType.STUDY);
         if (!rooms.isEmpty()) {
             // there are remaining rooms
@@ -99,11 +100,7 @@ public class StudyRoomRecommender {
      */
     public static Room recommendStudyRoom(Building building) {
         Room bestRoom = null;
-        if (building.getFloors() == null) {
-            return null;
-        }
-        List<Floor> floors = filterList(building.getFloors(),
-                                        floor -> floor.getRooms() != null);
+        List<Floor> floors = building.getFloorsView();
         if (floors.isEmpty()) {
             return null;
         }
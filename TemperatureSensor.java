@@ -1,5 +1,7 @@
 package bms.sensors;
 
+import java.io.IOException;
+
 /**
  * A sensor that measures ambient temperature in a room.
  * @ass1
@@ -19,7 +21,30 @@ public class TemperatureSensor extends TimedSensor implements HazardSensor,
      * @ass1
      */
     public TemperatureSensor(int[] sensorReadings) {
-        super(sensorReadings, 1);
+        this(null, sensorReadings);
+    }
+
+    /**
+     * Creates a new temperature sensor held in the given sensor store.
+     *
+     * @param store store to hold the sensor's state, or null
+     * @param sensorReadings a non-empty array of sensor readings
+     * @see TimedSensor#TimedSensor(SensorStore, int[], int)
+     */
+    public TemperatureSensor(SensorStore store, int[] sensorReadings) {
+        super(store, sensorReadings, 1);
+    }
+
+    /**
+     * Creates a new temperature sensor whose readings are read from the given
+     * sensor trace.
+     *
+     * @param trace trace holding the sensor readings
+     * @param traceIndex index of the sensor within the trace
+     * @see TimedSensor#TimedSensor(SensorTrace, int, int)
+     */
+    public TemperatureSensor(SensorTrace trace, int traceIndex) {
+        super(trace, traceIndex, 1);
     }
 
     /**
@@ -88,7 +113,8 @@ public class TemperatureSensor extends TimedSensor implements HazardSensor,
      * {@inheritDoc}
      */
     @Override
-    public String encode() {
-        return String.format("TemperatureSensor:%s", super.encode());
+    public void encodeTo(Appendable out) throws IOException {
+        out.append("TemperatureSensor:");
+        super.encodeTo(out);
     }
 }
@@ -0,0 +1,1180 @@
+package bms.building;
+
+import bms.exceptions.FileFormatException;
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.sensors.Sensor;
+import bms.sensors.SensorKind;
+import bms.util.TimedItem;
+import bms.util.TimedItemManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Append-only store of every sensor reading and room state observed during a
+ * simulation, one sample per series per minute.
+ * <p>
+ * When a store is created, it indexes every sensor and room of the given
+ * buildings as a series and records their current values as minute 0. It
+ * then registers itself with the current {@link TimedItemManager} and
+ * records one further sample each time a minute elapses. Sensors and rooms
+ * added to the buildings after the store is created are not recorded.
+ * <p>
+ * Samples are held in chunks of {@value #CHUNK_SIZE} minutes, each encoded
+ * as the zig-zag encoded difference from the previous sample, written as a
+ * variable-length quantity. Readings rarely change by much from one minute to
+ * the next, so most samples take a single byte. Each series also keeps
+ * rollups of the minimum, maximum and sum of its samples over every 5 minutes
+ * and every hour, encoded in the same way, so long ranges can be summarised
+ * without decoding every sample.
+ * <p>
+ * Series can be looked up by building name, floor number, room number and
+ * sensor kind, and range queries only decode the chunks that overlap the
+ * requested range. Stores can be saved to a file and loaded again for
+ * analysis after the simulation has finished.
+ * <p>
+ * Stores are not thread safe: they should only be queried from the thread
+ * that elapses their manager, or while it is not running.
+ */
+public class TimeSeriesStore implements TimedItem {
+    /**
+     * Number of samples in each chunk.
+     */
+    static final int CHUNK_SIZE = 1024;
+
+    /**
+     * Magic number at the start of every saved store ("BMTS").
+     */
+    private static final int MAGIC = 0x424D5453;
+
+    /**
+     * Version of the file format written by this class.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Size of the read and write buffers, in bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Kind code for series of room states.
+     */
+    private static final int ROOM_STATE = -1;
+
+    /**
+     * Resolution of aggregates returned by
+     * {@link Series#getAggregates(Resolution, long, long)}.
+     */
+    public enum Resolution {
+        /**
+         * One aggregate per sample.
+         */
+        MINUTE(1),
+
+        /**
+         * One aggregate per 5 minutes.
+         */
+        FIVE_MINUTES(5),
+
+        /**
+         * One aggregate per hour.
+         */
+        HOUR(60);
+
+        /**
+         * Number of minutes covered by each aggregate.
+         */
+        private final int minutes;
+
+        Resolution(int minutes) {
+            this.minutes = minutes;
+        }
+
+        /**
+         * Returns the number of minutes covered by each aggregate.
+         *
+         * @return minutes per aggregate
+         */
+        public int getMinutes() {
+            return this.minutes;
+        }
+    }
+
+    /**
+     * Every series in the store, in the order of the buildings it was created
+     * from.
+     */
+    private final List<Series> series;
+
+    /**
+     * Series indexed by their building, floor, room and kind.
+     */
+    private final Map<String, Series> seriesByKey;
+
+    /**
+     * Registration with the manager recording the store; null if the store
+     * was loaded from a file.
+     */
+    private final TimedItemManager.Registration registration;
+
+    /**
+     * Number of samples recorded in each series.
+     */
+    private long minutes;
+
+    /**
+     * Creates a new store recording every sensor and room of the given
+     * buildings, and registers it with the current timed item manager.
+     * <p>
+     * The current readings and room states are recorded immediately as
+     * minute 0. The store should be created after the buildings have been
+     * loaded, so it records the state of each minute after every sensor and
+     * maintenance schedule has been updated.
+     *
+     * @param buildings buildings to record
+     */
+    public TimeSeriesStore(List<Building> buildings) {
+        this.series = new ArrayList<>();
+        this.seriesByKey = new HashMap<>();
+        for (Building building : buildings) {
+            for (Floor floor : building.getFloorsView()) {
+                for (Room room : floor.getRoomsView()) {
+                    this.add(new Series(building.getName(),
+                            floor.getFloorNumber(), room.getRoomNumber(),
+                            null, room, null));
+                    for (Sensor sensor : room.getSensorsView()) {
+                        SensorKind kind = SensorKind.of(sensor);
+                        if (kind == null) {
+                            // only known kinds of sensor can be identified
+                            // in the store and its files
+                            continue;
+                        }
+                        this.add(new Series(building.getName(),
+                                floor.getFloorNumber(), room.getRoomNumber(),
+                                kind, room, sensor));
+                    }
+                }
+            }
+        }
+        this.elapseOneMinute();
+        this.registration =
+                TimedItemManager.getInstance().registerTimedItem(this);
+    }
+
+    /**
+     * Creates a new store holding series read from a file, which is not
+     * recording.
+     *
+     * @param series series read from the file
+     * @param minutes number of samples in each series
+     */
+    private TimeSeriesStore(List<Series> series, long minutes) {
+        this.series = new ArrayList<>();
+        this.seriesByKey = new HashMap<>();
+        for (Series s : series) {
+            this.add(s);
+        }
+        this.registration = null;
+        this.minutes = minutes;
+    }
+
+    /**
+     * Adds a series to the store and its index.
+     *
+     * @param s series to add
+     */
+    private void add(Series s) {
+        this.series.add(s);
+        this.seriesByKey.putIfAbsent(key(s.buildingName, s.floorNumber,
+                s.roomNumber, s.kind), s);
+    }
+
+    /**
+     * Returns the key of the series with the given location and kind.
+     *
+     * @param buildingName name of the building
+     * @param floorNumber floor number
+     * @param roomNumber room number
+     * @param kind kind of sensor; null for room states
+     * @return key of the series
+     */
+    private static String key(String buildingName, int floorNumber,
+                              int roomNumber, SensorKind kind) {
+        return buildingName + '\0' + floorNumber + '\0' + roomNumber + '\0'
+                + (kind == null ? ROOM_STATE : kind.ordinal());
+    }
+
+    /**
+     * Records the current reading of every sensor and state of every room.
+     */
+    @Override
+    public void elapseOneMinute() {
+        for (Series s : this.series) {
+            s.record();
+        }
+        this.minutes++;
+    }
+
+    /**
+     * Stops recording, deregistering the store from its manager. Series
+     * already recorded can still be queried.
+     */
+    public void stopRecording() {
+        if (this.registration != null) {
+            this.registration.deregister();
+        }
+    }
+
+    /**
+     * Returns whether the store is recording a sample every minute.
+     *
+     * @return true if the store is registered with a manager
+     */
+    public boolean isRecording() {
+        return this.registration != null && this.registration.isActive();
+    }
+
+    /**
+     * Returns the number of samples recorded in each series, including the
+     * sample for minute 0.
+     *
+     * @return number of minutes recorded
+     */
+    public long getMinutesRecorded() {
+        return this.minutes;
+    }
+
+    /**
+     * Returns every series in the store, in the order of the buildings,
+     * floors, rooms and sensors they were created from. The series of each
+     * room's states comes before the series of its sensors.
+     *
+     * @return unmodifiable list of series
+     */
+    public List<Series> getSeries() {
+        return Collections.unmodifiableList(this.series);
+    }
+
+    /**
+     * Returns the series of readings of the sensor of the given kind in the
+     * given room.
+     *
+     * @param buildingName name of the building
+     * @param floorNumber number of the floor
+     * @param roomNumber number of the room
+     * @param kind kind of sensor
+     * @return series of readings; null if there is no such sensor
+     */
+    public Series getSensorSeries(String buildingName, int floorNumber,
+                                  int roomNumber, SensorKind kind) {
+        return this.seriesByKey.get(key(buildingName, floorNumber, roomNumber,
+                kind));
+    }
+
+    /**
+     * Returns the series of states of the given room. Each sample is the
+     * ordinal of the {@link bms.room.RoomState} the room was in.
+     *
+     * @param buildingName name of the building
+     * @param floorNumber number of the floor
+     * @param roomNumber number of the room
+     * @return series of room states; null if there is no such room
+     */
+    public Series getRoomStateSeries(String buildingName, int floorNumber,
+                                     int roomNumber) {
+        return this.seriesByKey.get(key(buildingName, floorNumber, roomNumber,
+                null));
+    }
+
+    /**
+     * Returns every series recorded in the given building.
+     *
+     * @param buildingName name of the building
+     * @return series in the building, in store order
+     */
+    public List<Series> select(String buildingName) {
+        return this.select(buildingName, -1, -1);
+    }
+
+    /**
+     * Returns every series recorded on the given floor.
+     *
+     * @param buildingName name of the building
+     * @param floorNumber number of the floor
+     * @return series on the floor, in store order
+     */
+    public List<Series> select(String buildingName, int floorNumber) {
+        return this.select(buildingName, floorNumber, -1);
+    }
+
+    /**
+     * Returns every series recorded in the given room, its room states first.
+     * Any of the floor and room numbers may be -1 to match every floor or
+     * room.
+     *
+     * @param buildingName name of the building
+     * @param floorNumber number of the floor, or -1
+     * @param roomNumber number of the room, or -1
+     * @return series in the room, in store order
+     */
+    public List<Series> select(String buildingName, int floorNumber,
+                               int roomNumber) {
+        List<Series> selected = new ArrayList<>();
+        for (Series s : this.series) {
+            if (s.buildingName.equals(buildingName)
+                    && (floorNumber == -1 || s.floorNumber == floorNumber)
+                    && (roomNumber == -1 || s.roomNumber == roomNumber)) {
+                selected.add(s);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the series of every sensor of the given kind, in every
+     * building.
+     *
+     * @param kind kind of sensor
+     * @return series of sensors of the kind, in store order
+     */
+    public List<Series> select(SensorKind kind) {
+        List<Series> selected = new ArrayList<>();
+        for (Series s : this.series) {
+            if (s.kind == kind) {
+                selected.add(s);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Returns the total number of bytes used to hold the encoded samples and
+     * rollups of every series.
+     *
+     * @return size of the encoded series, in bytes
+     */
+    public long getEncodedSize() {
+        long size = 0;
+        for (Series s : this.series) {
+            size += s.values.encodedSize() + s.fiveMinutes.encodedSize()
+                    + s.hours.encodedSize();
+        }
+        return size;
+    }
+
+    /**
+     * Saves the store to a file with the given filename, in the "saves"
+     * directory.
+     *
+     * @param filename path of the file to save the store to
+     * @throws IOException if an IOException is encountered when writing to
+     * the file
+     */
+    public void save(String filename) throws IOException {
+        try (OutputStream out = new FileOutputStream("saves/" + filename)) {
+            this.write(out);
+        }
+    }
+
+    /**
+     * Loads a store from a file with the given filename, in the "saves"
+     * directory. The loaded store is not recording.
+     *
+     * @param filename path of the file from which to load the store
+     * @return store read from the file
+     * @throws IOException if an IOException is encountered when reading from
+     * the file
+     * @throws FileFormatException if the file is not a valid store
+     */
+    public static TimeSeriesStore load(String filename)
+            throws IOException, FileFormatException {
+        try (InputStream in = new FileInputStream("saves/" + filename)) {
+            return read(in);
+        }
+    }
+
+    /**
+     * Writes every series in the store to an output stream. Samples that are
+     * not yet part of a complete 5 minute or hourly rollup are written, but
+     * the partial rollups are not.
+     * <p>
+     * The stream is flushed, but not closed.
+     *
+     * @param out stream to write the store to
+     * @throws IOException if an IOException is encountered when writing
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(out, BUFFER_SIZE));
+        output.writeInt(MAGIC);
+        output.writeInt(VERSION);
+        output.writeLong(this.minutes);
+        output.writeInt(this.series.size());
+        for (Series s : this.series) {
+            output.writeUTF(s.buildingName);
+            output.writeInt(s.floorNumber);
+            output.writeInt(s.roomNumber);
+            output.writeInt(s.kind == null ? ROOM_STATE : s.kind.ordinal());
+            s.values.write(output);
+            s.fiveMinutes.write(output);
+            s.hours.write(output);
+        }
+        output.flush();
+    }
+
+    /**
+     * Reads a store from an input stream. The store read is not recording.
+     *
+     * @param in stream to read the store from
+     * @return store read from the stream
+     * @throws IOException if an IOException is encountered when reading
+     * @throws FileFormatException if the stream does not contain a valid
+     * store
+     */
+    public static TimeSeriesStore read(InputStream in)
+            throws IOException, FileFormatException {
+        DataInputStream input = new DataInputStream(
+                new BufferedInputStream(in, BUFFER_SIZE));
+        try {
+            if (input.readInt() != MAGIC) {
+                throw new FileFormatException("Not a time series store");
+            }
+            int version = input.readInt();
+            if (version != VERSION) {
+                throw new FileFormatException(
+                        "Unsupported time series store version: " + version);
+            }
+            long minutes = input.readLong();
+            int numSeries = input.readInt();
+            if (minutes < 0 || numSeries < 0) {
+                throw new FileFormatException("Invalid time series header");
+            }
+            List<Series> series = new ArrayList<>();
+            for (int i = 0; i < numSeries; i++) {
+                String buildingName = input.readUTF();
+                int floorNumber = input.readInt();
+                int roomNumber = input.readInt();
+                int kindCode = input.readInt();
+                if (kindCode < ROOM_STATE || kindCode >= SensorKind.count()) {
+                    throw new FileFormatException("Unknown series kind: "
+                            + kindCode);
+                }
+                Series s = new Series(buildingName, floorNumber, roomNumber,
+                        kindCode == ROOM_STATE ? null
+                                : SensorKind.values()[kindCode], null, null);
+                s.values.read(input, minutes);
+                s.fiveMinutes.read(input, minutes);
+                s.hours.read(input, minutes);
+                series.add(s);
+            }
+            return new TimeSeriesStore(series, minutes);
+        } catch (EOFException e) {
+            throw new FileFormatException("Unexpected end of time series "
+                    + "store");
+        }
+    }
+
+    /**
+     * Samples of a single sensor's readings or a single room's states, with
+     * their 5 minute and hourly rollups.
+     * <p>
+     * Sample {@code m} of every series was recorded {@code m} minutes after
+     * the store was created.
+     */
+    public static final class Series {
+        /**
+         * Name of the building the series was recorded in.
+         */
+        private final String buildingName;
+
+        /**
+         * Number of the floor the series was recorded on.
+         */
+        private final int floorNumber;
+
+        /**
+         * Number of the room the series was recorded in.
+         */
+        private final int roomNumber;
+
+        /**
+         * Kind of sensor recorded; null for room states.
+         */
+        private final SensorKind kind;
+
+        /**
+         * Room being recorded; null if the series was loaded from a file.
+         */
+        private final Room room;
+
+        /**
+         * Sensor being recorded; null for room states, or if the series was
+         * loaded from a file.
+         */
+        private final Sensor sensor;
+
+        /**
+         * Every sample recorded.
+         */
+        private final Column values;
+
+        /**
+         * Aggregates of every 5 minutes of samples.
+         */
+        private final Rollup fiveMinutes;
+
+        /**
+         * Aggregates of every hour of samples.
+         */
+        private final Rollup hours;
+
+        /**
+         * Creates a new, empty series.
+         *
+         * @param buildingName name of the building
+         * @param floorNumber number of the floor
+         * @param roomNumber number of the room
+         * @param kind kind of sensor; null for room states
+         * @param room room being recorded
+         * @param sensor sensor being recorded; null for room states
+         */
+        private Series(String buildingName, int floorNumber, int roomNumber,
+                       SensorKind kind, Room room, Sensor sensor) {
+            this.buildingName = buildingName;
+            this.floorNumber = floorNumber;
+            this.roomNumber = roomNumber;
+            this.kind = kind;
+            this.room = room;
+            this.sensor = sensor;
+            this.values = new Column();
+            this.fiveMinutes = new Rollup(Resolution.FIVE_MINUTES.minutes);
+            this.hours = new Rollup(Resolution.HOUR.minutes);
+        }
+
+        /**
+         * Records the current reading of the sensor, or state of the room.
+         */
+        private void record() {
+            int value = this.sensor != null
+                    ? this.sensor.getCurrentReading()
+                    : this.room.evaluateRoomState().ordinal();
+            this.values.append(value);
+            this.fiveMinutes.add(value);
+            this.hours.add(value);
+        }
+
+        /**
+         * Returns the name of the building the series was recorded in.
+         *
+         * @return building name
+         */
+        public String getBuildingName() {
+            return this.buildingName;
+        }
+
+        /**
+         * Returns the number of the floor the series was recorded on.
+         *
+         * @return floor number
+         */
+        public int getFloorNumber() {
+            return this.floorNumber;
+        }
+
+        /**
+         * Returns the number of the room the series was recorded in.
+         *
+         * @return room number
+         */
+        public int getRoomNumber() {
+            return this.roomNumber;
+        }
+
+        /**
+         * Returns the kind of sensor recorded by the series.
+         *
+         * @return sensor kind; null if the series records room states
+         */
+        public SensorKind getSensorKind() {
+            return this.kind;
+        }
+
+        /**
+         * Returns the number of samples in the series.
+         *
+         * @return number of minutes recorded
+         */
+        public long size() {
+            return this.values.size;
+        }
+
+        /**
+         * Returns the sample recorded at the given minute.
+         *
+         * @param minute minute the sample was recorded
+         * @return reading or room state ordinal recorded
+         * @throws IndexOutOfBoundsException if minute &lt; 0 or
+         * minute &gt;= size()
+         */
+        public int getValue(long minute) throws IndexOutOfBoundsException {
+            return this.getValues(minute, minute + 1)[0];
+        }
+
+        /**
+         * Returns the samples recorded from minute {@code from} inclusive to
+         * minute {@code to} exclusive.
+         *
+         * @param from first minute of the range
+         * @param to minute after the last minute of the range
+         * @return readings or room state ordinals recorded, in order
+         * @throws IndexOutOfBoundsException if the range is not within the
+         * series
+         */
+        public int[] getValues(long from, long to)
+                throws IndexOutOfBoundsException {
+            checkRange(from, to, this.size());
+            long[] decoded = this.values.read(from, to);
+            int[] result = new int[decoded.length];
+            for (int i = 0; i < decoded.length; i++) {
+                result[i] = (int) decoded[i];
+            }
+            return result;
+        }
+
+        /**
+         * Returns the aggregates, at the given resolution, of the samples
+         * recorded from minute {@code from} inclusive to minute {@code to}
+         * exclusive.
+         * <p>
+         * Only periods lying entirely within the range, and for which every
+         * sample has been recorded, are included. Periods are aligned to
+         * minute 0, so for example the 5 minute aggregates cover minutes 0 to
+         * 4, 5 to 9, and so on.
+         *
+         * @param resolution length of the period covered by each aggregate
+         * @param from first minute of the range
+         * @param to minute after the last minute of the range
+         * @return aggregates of each period
+         * @throws IndexOutOfBoundsException if the range is not within the
+         * series
+         */
+        public Aggregates getAggregates(Resolution resolution, long from,
+                                        long to)
+                throws IndexOutOfBoundsException {
+            checkRange(from, to, this.size());
+            int period = resolution.minutes;
+            if (resolution == Resolution.MINUTE) {
+                long[] decoded = this.values.read(from, to);
+                return new Aggregates(from, period, decoded, decoded,
+                        decoded);
+            }
+            Rollup rollup = resolution == Resolution.FIVE_MINUTES
+                    ? this.fiveMinutes : this.hours;
+            long first = (from + period - 1) / period;
+            long last = Math.min(to / period, rollup.sums.size);
+            if (last <= first) {
+                return new Aggregates(first * period, period, new long[0],
+                        new long[0], new long[0]);
+            }
+            return new Aggregates(first * period, period,
+                    rollup.mins.read(first, last),
+                    rollup.maxs.read(first, last),
+                    rollup.sums.read(first, last));
+        }
+
+        /**
+         * Checks that a range of minutes lies within a series.
+         *
+         * @param from first minute of the range
+         * @param to minute after the last minute of the range
+         * @param size number of samples in the series
+         * @throws IndexOutOfBoundsException if the range is not within the
+         * series
+         */
+        private static void checkRange(long from, long to, long size)
+                throws IndexOutOfBoundsException {
+            if (from < 0 || to < from || to > size) {
+                throw new IndexOutOfBoundsException("Range [" + from + ", "
+                        + to + ") out of bounds for series of " + size
+                        + " minutes");
+            }
+        }
+
+        /**
+         * Returns a human-readable representation of the series.
+         *
+         * @return string representation of this series
+         */
+        @Override
+        public String toString() {
+            return String.format("%s, floor %d, room %d, %s: %d minutes",
+                    this.buildingName, this.floorNumber, this.roomNumber,
+                    this.kind == null ? "state" : this.kind, this.size());
+        }
+    }
+
+    /**
+     * Minimum, maximum and mean of the samples in consecutive periods of a
+     * series.
+     */
+    public static final class Aggregates {
+        /**
+         * Minute the first period begins.
+         */
+        private final long start;
+
+        /**
+         * Number of minutes in each period.
+         */
+        private final int period;
+
+        /**
+         * Lowest sample in each period.
+         */
+        private final long[] mins;
+
+        /**
+         * Highest sample in each period.
+         */
+        private final long[] maxs;
+
+        /**
+         * Sum of the samples in each period.
+         */
+        private final long[] sums;
+
+        /**
+         * Creates new aggregates.
+         *
+         * @param start minute the first period begins
+         * @param period number of minutes in each period
+         * @param mins lowest sample in each period
+         * @param maxs highest sample in each period
+         * @param sums sum of the samples in each period
+         */
+        private Aggregates(long start, int period, long[] mins, long[] maxs,
+                           long[] sums) {
+            this.start = start;
+            this.period = period;
+            this.mins = mins;
+            this.maxs = maxs;
+            this.sums = sums;
+        }
+
+        /**
+         * Returns the number of periods aggregated.
+         *
+         * @return number of aggregates
+         */
+        public int size() {
+            return this.sums.length;
+        }
+
+        /**
+         * Returns the minute the given period begins.
+         *
+         * @param index index of the period
+         * @return first minute of the period
+         * @throws IndexOutOfBoundsException if index &lt; 0 or
+         * index &gt;= size()
+         */
+        public long getStartMinute(int index)
+                throws IndexOutOfBoundsException {
+            Objects.checkIndex(index, this.size());
+            return this.start + (long) index * this.period;
+        }
+
+        /**
+         * Returns the lowest sample in the given period.
+         *
+         * @param index index of the period
+         * @return minimum sample
+         * @throws IndexOutOfBoundsException if index &lt; 0 or
+         * index &gt;= size()
+         */
+        public int getMin(int index) throws IndexOutOfBoundsException {
+            return (int) this.mins[index];
+        }
+
+        /**
+         * Returns the highest sample in the given period.
+         *
+         * @param index index of the period
+         * @return maximum sample
+         * @throws IndexOutOfBoundsException if index &lt; 0 or
+         * index &gt;= size()
+         */
+        public int getMax(int index) throws IndexOutOfBoundsException {
+            return (int) this.maxs[index];
+        }
+
+        /**
+         * Returns the mean of the samples in the given period.
+         *
+         * @param index index of the period
+         * @return mean sample
+         * @throws IndexOutOfBoundsException if index &lt; 0 or
+         * index &gt;= size()
+         */
+        public double getMean(int index) throws IndexOutOfBoundsException {
+            return (double) this.sums[index] / this.period;
+        }
+    }
+
+    /**
+     * Minimum, maximum and sum of every complete period of samples, with the
+     * aggregates of the period currently being recorded.
+     */
+    private static final class Rollup {
+        /**
+         * Number of samples in each period.
+         */
+        private final int period;
+
+        /**
+         * Lowest sample in each complete period.
+         */
+        private final Column mins;
+
+        /**
+         * Highest sample in each complete period.
+         */
+        private final Column maxs;
+
+        /**
+         * Sum of the samples in each complete period.
+         */
+        private final Column sums;
+
+        /**
+         * Lowest sample so far in the current period.
+         */
+        private int min;
+
+        /**
+         * Highest sample so far in the current period.
+         */
+        private int max;
+
+        /**
+         * Sum of the samples so far in the current period.
+         */
+        private long sum;
+
+        /**
+         * Number of samples so far in the current period.
+         */
+        private int count;
+
+        /**
+         * Creates a new, empty rollup.
+         *
+         * @param period number of samples in each period
+         */
+        private Rollup(int period) {
+            this.period = period;
+            this.mins = new Column();
+            this.maxs = new Column();
+            this.sums = new Column();
+        }
+
+        /**
+         * Adds a sample to the current period, appending its aggregates once
+         * the period is complete.
+         *
+         * @param value sample to add
+         */
+        private void add(int value) {
+            if (this.count == 0) {
+                this.min = value;
+                this.max = value;
+                this.sum = 0;
+            } else {
+                this.min = Math.min(this.min, value);
+                this.max = Math.max(this.max, value);
+            }
+            this.sum += value;
+            if (++this.count == this.period) {
+                this.mins.append(this.min);
+                this.maxs.append(this.max);
+                this.sums.append(this.sum);
+                this.count = 0;
+            }
+        }
+
+        /**
+         * Returns the number of bytes used to hold the encoded aggregates.
+         *
+         * @return size of the encoded aggregates, in bytes
+         */
+        private long encodedSize() {
+            return this.mins.encodedSize() + this.maxs.encodedSize()
+                    + this.sums.encodedSize();
+        }
+
+        /**
+         * Writes the aggregates of every complete period.
+         *
+         * @param output stream to write to
+         * @throws IOException if an IOException is encountered when writing
+         */
+        private void write(DataOutputStream output) throws IOException {
+            this.mins.write(output);
+            this.maxs.write(output);
+            this.sums.write(output);
+        }
+
+        /**
+         * Reads the aggregates of every complete period.
+         *
+         * @param input stream to read from
+         * @param minutes number of samples in the series
+         * @throws IOException if an IOException is encountered when reading
+         * @throws FileFormatException if the aggregates are invalid
+         */
+        private void read(DataInputStream input, long minutes)
+                throws IOException, FileFormatException {
+            long periods = minutes / this.period;
+            this.mins.read(input, periods);
+            this.maxs.read(input, periods);
+            this.sums.read(input, periods);
+        }
+    }
+
+    /**
+     * Append-only sequence of integers, held in chunks of
+     * {@value #CHUNK_SIZE} values.
+     * <p>
+     * Each value is stored as the difference from the previous value in its
+     * chunk, zig-zag encoded so small negative differences are small
+     * positive numbers, and written as a variable-length quantity of 7 bits
+     * per byte. Each chunk starts from 0, so any chunk can be decoded without
+     * reading the chunks before it.
+     */
+    private static final class Column {
+        /**
+         * Initial capacity of the chunk being appended to, in bytes.
+         */
+        private static final int INITIAL_CAPACITY = 16;
+
+        /**
+         * Maximum number of bytes needed to encode a single value.
+         */
+        private static final int MAX_VALUE_BYTES = 10;
+
+        /**
+         * Every complete chunk, trimmed to its encoded length.
+         */
+        private final List<byte[]> chunks;
+
+        /**
+         * Chunk being appended to.
+         */
+        private byte[] current;
+
+        /**
+         * Number of bytes used in {@link #current}.
+         */
+        private int position;
+
+        /**
+         * Last value appended.
+         */
+        private long previous;
+
+        /**
+         * Number of values appended.
+         */
+        private long size;
+
+        /**
+         * Creates a new, empty column.
+         */
+        private Column() {
+            this.chunks = new ArrayList<>();
+            this.current = new byte[INITIAL_CAPACITY];
+        }
+
+        /**
+         * Appends a value to the column.
+         *
+         * @param value value to append
+         */
+        private void append(long value) {
+            if (this.size > 0 && this.size % CHUNK_SIZE == 0) {
+                // the current buffer is reused for the next chunk
+                this.chunks.add(Arrays.copyOf(this.current, this.position));
+                this.position = 0;
+                this.previous = 0;
+            }
+            if (this.position + MAX_VALUE_BYTES > this.current.length) {
+                this.current = Arrays.copyOf(this.current,
+                        this.current.length * 2);
+            }
+            long delta = value - this.previous;
+            long encoded = (delta << 1) ^ (delta >> 63);
+            while ((encoded & ~0x7FL) != 0) {
+                this.current[this.position++] =
+                        (byte) ((encoded & 0x7F) | 0x80);
+                encoded >>>= 7;
+            }
+            this.current[this.position++] = (byte) encoded;
+            this.previous = value;
+            this.size++;
+        }
+
+        /**
+         * Decodes the values from index {@code from} inclusive to index
+         * {@code to} exclusive, which must lie within the column.
+         *
+         * @param from index of the first value
+         * @param to index after the last value
+         * @return decoded values
+         */
+        private long[] read(long from, long to) {
+            long[] result = new long[(int) (to - from)];
+            for (long chunk = from / CHUNK_SIZE; chunk * CHUNK_SIZE < to;
+                    chunk++) {
+                boolean complete = chunk < this.chunks.size();
+                byte[] bytes = complete ? this.chunks.get((int) chunk)
+                        : this.current;
+                int limit = complete ? bytes.length : this.position;
+                long index = chunk * CHUNK_SIZE;
+                long value = 0;
+                int pos = 0;
+                while (index < to && pos < limit) {
+                    long encoded = 0;
+                    int shift = 0;
+                    byte b;
+                    do {
+                        b = bytes[pos++];
+                        encoded |= (long) (b & 0x7F) << shift;
+                        shift += 7;
+                    } while (b < 0);
+                    value += (encoded >>> 1) ^ -(encoded & 1);
+                    if (index >= from) {
+                        result[(int) (index - from)] = value;
+                    }
+                    index++;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the number of bytes used to hold the encoded values.
+         *
+         * @return size of the encoded values, in bytes
+         */
+        private long encodedSize() {
+            long encoded = this.position;
+            for (byte[] chunk : this.chunks) {
+                encoded += chunk.length;
+            }
+            return encoded;
+        }
+
+        /**
+         * Writes the encoded chunks of the column.
+         *
+         * @param output stream to write to
+         * @throws IOException if an IOException is encountered when writing
+         */
+        private void write(DataOutputStream output) throws IOException {
+            for (byte[] chunk : this.chunks) {
+                output.writeInt(chunk.length);
+                output.write(chunk);
+            }
+            if (this.size > (long) this.chunks.size() * CHUNK_SIZE) {
+                output.writeInt(this.position);
+                output.write(this.current, 0, this.position);
+            }
+        }
+
+        /**
+         * Reads the encoded chunks of a column with the given number of
+         * values into this empty column.
+         *
+         * @param input stream to read from
+         * @param size number of values in the column
+         * @throws IOException if an IOException is encountered when reading
+         * @throws FileFormatException if a chunk is invalid
+         */
+        private void read(DataInputStream input, long size)
+                throws IOException, FileFormatException {
+            long numChunks = (size + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            for (long i = 0; i < numChunks; i++) {
+                int length = input.readInt();
+                int values = (int) Math.min(CHUNK_SIZE,
+                        size - i * CHUNK_SIZE);
+                if (length < values || length > values * MAX_VALUE_BYTES) {
+                    throw new FileFormatException("Invalid chunk length: "
+                            + length);
+                }
+                byte[] chunk = new byte[length];
+                input.readFully(chunk);
+                if (i < numChunks - 1) {
+                    this.chunks.add(chunk);
+                } else {
+                    this.current = Arrays.copyOf(chunk,
+                            Math.max(length, INITIAL_CAPACITY));
+                    this.position = length;
+                }
+            }
+            this.size = size;
+            if (size > 0) {
+                this.checkChunks();
+                this.previous = this.read(size - 1, size)[0];
+            }
+        }
+
+        /**
+         * Checks that every chunk decodes to exactly the expected number of
+         * values.
+         *
+         * @throws FileFormatException if a chunk is truncated or has extra
+         * bytes
+         */
+        private void checkChunks() throws FileFormatException {
+            for (long chunk = 0; chunk * CHUNK_SIZE < this.size; chunk++) {
+                boolean complete = chunk < this.chunks.size();
+                byte[] bytes = complete ? this.chunks.get((int) chunk)
+                        : this.current;
+                int limit = complete ? bytes.length : this.position;
+                long values = Math.min(CHUNK_SIZE,
+                        this.size - chunk * CHUNK_SIZE);
+                int pos = 0;
+                for (long i = 0; i < values; i++) {
+                    int length = 0;
+                    do {
+                        if (pos >= limit || ++length > MAX_VALUE_BYTES) {
+                            throw new FileFormatException(
+                                    "Truncated time series chunk");
+                        }
+                    } while (bytes[pos++] < 0);
+                }
+                if (pos != limit) {
+                    throw new FileFormatException(
+                            "Unexpected data in time series chunk");
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package bms.building;
+
+import bms.floor.Floor;
+import bms.room.Room;
+import bms.room.RoomState;
+import bms.room.RoomType;
+import bms.sensors.NoiseSensor;
+import bms.sensors.SensorKind;
+import bms.sensors.TemperatureSensor;
+import bms.util.TimedItemManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+public class TimeSeriesStoreTest {
+    private TimedItemManager manager;
+    private TimeSeriesStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        manager = new TimedItemManager();
+        TimedItemManager.Scope scope = manager.makeCurrent();
+        try {
+            List<Building> buildings = new ArrayList<>();
+            Building building = new Building("Series Building");
+            Floor floor = new Floor(1, 10, 10);
+            Room office = new Room(101, RoomType.OFFICE, 20);
+            Room lab = new Room(102, RoomType.LABORATORY, 30);
+            floor.addRoom(office);
+            floor.addRoom(lab);
+            building.addFloor(floor);
+            buildings.add(building);
+            office.addSensor(new NoiseSensor(new int[]{50, 55, 60, 65, 70,
+                    75}, 1));
+            lab.addSensor(new TemperatureSensor(new int[]{20, 70, 20}));
+            store = new TimeSeriesStore(buildings);
+        } finally {
+            scope.close();
+        }
+    }
+
+    @Test
+    public void recordsEveryMinute() {
+        for (int i = 0; i < 2999; i++) {
+            manager.elapseOneMinute();
+        }
+        Assert.assertEquals(3000, store.getMinutesRecorded());
+        Assert.assertEquals(4, store.getSeries().size());
+        Assert.assertEquals(2, store.select("Series Building", 1, 102).size());
+
+        TimeSeriesStore.Series noise = store.getSensorSeries(
+                "Series Building", 1, 101, SensorKind.NOISE);
+        Assert.assertArrayEquals(new int[]{65, 70, 75, 50},
+                noise.getValues(2049, 2053));
+        TimeSeriesStore.Series lab = store.getRoomStateSeries(
+                "Series Building", 1, 102);
+        Assert.assertEquals(RoomState.EVACUATE.ordinal(), lab.getValue(2998));
+        Assert.assertNull(store.getSensorSeries("Series Building", 1, 101,
+                SensorKind.TEMPERATURE));
+    }
+
+    @Test
+    public void rollsUpIntoPeriods() {
+        for (int i = 0; i < 129; i++) {
+            manager.elapseOneMinute();
+        }
+        TimeSeriesStore.Series noise = store.getSensorSeries(
+                "Series Building", 1, 101, SensorKind.NOISE);
+        TimeSeriesStore.Aggregates fiveMinutes = noise.getAggregates(
+                TimeSeriesStore.Resolution.FIVE_MINUTES, 3, 130);
+        Assert.assertEquals(25, fiveMinutes.size());
+        Assert.assertEquals(5, fiveMinutes.getStartMinute(0));
+        Assert.assertEquals(50, fiveMinutes.getMin(0));
+        Assert.assertEquals(75, fiveMinutes.getMax(0));
+        Assert.assertEquals(61, fiveMinutes.getMean(0), 1e-9);
+        TimeSeriesStore.Aggregates hours = noise.getAggregates(
+                TimeSeriesStore.Resolution.HOUR, 0, 130);
+        Assert.assertEquals(2, hours.size());
+        Assert.assertEquals(62.5, hours.getMean(1), 1e-9);
+    }
+
+    @Test
+    public void savedStoreReadsBack() throws Exception {
+        for (int i = 0; i < 1500; i++) {
+            manager.elapseOneMinute();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        store.write(out);
+        TimeSeriesStore loaded = TimeSeriesStore.read(
+                new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertFalse(loaded.isRecording());
+        Assert.assertEquals(1501, loaded.getMinutesRecorded());
+        for (int i = 0; i < store.getSeries().size(); i++) {
+            TimeSeriesStore.Series original = store.getSeries().get(i);
+            TimeSeriesStore.Series copy = loaded.getSeries().get(i);
+            Assert.assertArrayEquals(original.getValues(0, 1501),
+                    copy.getValues(0, 1501));
+            Assert.assertEquals(original.getAggregates(
+                    TimeSeriesStore.Resolution.HOUR, 0, 1501).getMean(24),
+                    copy.getAggregates(TimeSeriesStore.Resolution.HOUR, 0,
+                            1501).getMean(24), 0);
+        }
+
+        store.stopRecording();
+        manager.elapseOneMinute();
+        Assert.assertEquals(1501, store.getMinutesRecorded());
+    }
+}
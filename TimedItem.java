@@ -12,4 +12,18 @@ public interface TimedItem {
      * @ass1
      */
     void elapseOneMinute();
+
+    /**
+     * Returns whether this item only updates its own state when a minute
+     * elapses, and does not read or modify any other part of the model.
+     * <p>
+     * Independent items may be updated concurrently with one another, and
+     * are always updated before any other items in the same minute (see
+     * {@link TimedItemManager#setParallel(boolean)}).
+     *
+     * @return true if this item's updates are independent of other items
+     */
+    default boolean isIndependent() {
+        return false;
+    }
 }
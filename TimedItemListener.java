@@ -0,0 +1,17 @@
+package bms.util;
+
+/**
+ * Listener which is notified when the observable state of a timed item
+ * changes.
+ *
+ * @see TimedItemManager#addListener(TimedItemListener)
+ */
+@FunctionalInterface
+public interface TimedItemListener {
+    /**
+     * Called after the observable state of the given timed item has changed.
+     *
+     * @param item item which has changed
+     */
+    void itemChanged(TimedItem item);
+}
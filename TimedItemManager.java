@@ -1,10 +1,28 @@
 package bms.util;
 
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * Singleton class which manages all the timed items.
+ * Class which manages all the timed items of a simulation.
+ * <p>
+ * Each manager is an independent simulation context, with its own clock and
+ * its own registered items. Timed items register with the current manager
+ * when they are created (see {@link #getInstance()}), which is a shared
+ * default manager unless another manager has been made current on the
+ * creating thread (see {@link #makeCurrent()}). Separate managers can be
+ * updated concurrently on separate threads, provided their models share no
+ * items.
  * <p>
  * All classes that implement TimedItem must be registered with this manager,
  * which will allow their {@link TimedItemManager#elapseOneMinute()} method to
@@ -14,48 +32,708 @@ import java.util.List;
  * {@link TimedItemManager#registerTimedItem(TimedItem)} ()} and passing itself,
  * the manager will ensure that its {@code elapseOneMinute()} method is called
  * at regular intervals.
+ * <p>
+ * Each minute is elapsed in two phases. Items that are independent (see
+ * {@link TimedItem#isIndependent()}), such as sensors, are updated first,
+ * followed by all other items in the order they were registered. This means
+ * that items such as maintenance schedules always observe the sensor readings
+ * for the current minute.
+ * <p>
+ * The manager counts the minutes it has elapsed, and keeps a modification
+ * count which changes whenever the state of any timed item may have changed.
+ * Values derived from timed items, such as hazard levels, can be cached until
+ * the modification count changes.
+ * <p>
+ * In event-driven mode (see {@link #setEventDriven(boolean)}), independent
+ * {@link ScheduledItem}s are not updated every minute. Instead, each is woken
+ * only at the minute its observable state changes, and listeners (see
+ * {@link #addListener(TimedItemListener)}) are notified of the change.
+ * <p>
+ * Items remain registered until they are deregistered, either through the
+ * {@link Registration} returned when they were registered or with
+ * {@link #deregisterTimedItem(TimedItem)}. Items registered weakly (see
+ * {@link #registerTimedItemWeakly(TimedItem)}) are also deregistered once
+ * nothing else refers to them.
  * @ass1
  */
 public class TimedItemManager implements TimedItem {
     /**
-     * Singleton instance.
+     * Maximum number of independent items updated by a single task when the
+     * manager is in parallel mode.
+     */
+    private static final int SHARD_SIZE = 1024;
+
+    /**
+     * Number of minutes covered by one revolution of the timing wheel used in
+     * event-driven mode. Must be a power of two.
+     */
+    private static final int WHEEL_SIZE = 1024;
+
+    /**
+     * Default manager, used by threads with no current manager.
      */
     private static TimedItemManager instance = new TimedItemManager();
 
     /**
-     * List of timed items currently registered with the manager.
+     * Manager made current on each thread, if any.
+     */
+    private static final ThreadLocal<TimedItemManager> CURRENT =
+            new ThreadLocal<>();
+
+    /**
+     * List of independent timed items currently registered with the manager.
+     */
+    private List<TimedItem> independentItems;
+
+    /**
+     * List of independent scheduled items currently registered with the
+     * manager.
+     */
+    private List<TimedItem> scheduledItems;
+
+    /**
+     * List of all other timed items currently registered with the manager.
      */
     private List<TimedItem> timedItems;
 
+    /**
+     * Whether independent items are updated concurrently.
+     */
+    private boolean parallel;
+
+    /**
+     * Whether scheduled items are only woken when their state changes.
+     */
+    private boolean eventDriven;
+
+    /**
+     * Timing wheel of wake-ups due within the next {@link #WHEEL_SIZE}
+     * minutes, with one bucket per minute; only used in event-driven mode.
+     */
+    private List<List<Wakeup>> wheel;
+
+    /**
+     * Wake-ups due too far in the future to fit on the timing wheel, keyed
+     * by the minute they are due; only used in event-driven mode.
+     */
+    private TreeMap<Long, List<Wakeup>> overflow;
+
+    /**
+     * Wake-up of each scheduled item; only used in event-driven mode.
+     */
+    private Map<TimedItem, Wakeup> wakeups;
+
+    /**
+     * Listeners notified when the state of a timed item changes.
+     */
+    private List<TimedItemListener> listeners;
+
+    /**
+     * Registration of each item registered with a strong reference.
+     */
+    private Map<TimedItem, Registration> registrations;
+
+    /**
+     * Registrations of items registered with a weak reference.
+     */
+    private Set<Registration> weakRegistrations;
+
+    /**
+     * Queue of weakly registered items that have been garbage collected.
+     */
+    private ReferenceQueue<TimedItem> collected;
+
+    /**
+     * Entries of deregistered items which are still to be removed from the
+     * lists of items to update.
+     */
+    private Set<TimedItem> pendingRemovals;
+
+    /**
+     * Number of registrations made so far, used to order registrations.
+     */
+    private long registrationCount;
+
+    /**
+     * Number of minutes elapsed by the manager.
+     */
+    private volatile long ticks;
+
+    /**
+     * Incremented each time the state of a timed item may have changed.
+     * Atomic, since changes may be reported from several threads at once.
+     */
+    private final AtomicLong modificationCount;
+
+    /**
+     * Whether the manager is currently elapsing a minute.
+     */
+    private volatile boolean elapsing;
+
     /**
      * Creates a new timed item manager with an empty list of registered items.
+     * <p>
+     * The new manager is a separate simulation context, with a clock
+     * starting from zero. Items are only registered with it while it is
+     * current (see {@link #makeCurrent()}) or when registered explicitly.
      * @ass1
      */
-    private TimedItemManager() {
+    public TimedItemManager() {
+        this.independentItems = new ArrayList<>();
+        this.scheduledItems = new ArrayList<>();
         this.timedItems = new ArrayList<>();
+        this.parallel = false;
+        this.eventDriven = false;
+        this.wheel = new ArrayList<>(WHEEL_SIZE);
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            this.wheel.add(new ArrayList<>());
+        }
+        this.overflow = new TreeMap<>();
+        this.wakeups = new IdentityHashMap<>();
+        this.listeners = new ArrayList<>();
+        this.registrations = new IdentityHashMap<>();
+        this.weakRegistrations =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        this.collected = new ReferenceQueue<>();
+        this.pendingRemovals =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        this.registrationCount = 0;
+        this.modificationCount = new AtomicLong();
     }
 
     /**
-     * Returns the singleton instance of the timed item manager.
+     * Returns the timed item manager which is current on the calling thread.
+     * <p>
+     * This is the manager most recently made current on the thread with
+     * {@link #makeCurrent()}, or the shared default manager if there is
+     * none.
      *
-     * @return singleton instance
+     * @return current timed item manager
      * @ass1
      */
     public static TimedItemManager getInstance() {
-        return instance;
+        TimedItemManager current = CURRENT.get();
+        return current == null ? instance : current;
+    }
+
+    /**
+     * Makes this manager current on the calling thread, until the returned
+     * scope is closed.
+     * <p>
+     * Timed items created on the thread while the scope is open register
+     * with this manager, and remember it for the rest of their lifetime.
+     * Scopes must be closed on the thread that opened them, in the reverse
+     * order they were opened, for example with a try-with-resources
+     * statement.
+     *
+     * @return scope which makes the previously current manager current
+     * again when closed
+     */
+    public Scope makeCurrent() {
+        Scope scope = new Scope(CURRENT.get());
+        CURRENT.set(this);
+        return scope;
     }
 
     /**
      * Registers a timed item with the manager.
      * <p>
      * After calling this method, the manager will call the given timed item's
-     * {@code elapseOneMinute()} method at regular intervals.
+     * {@code elapseOneMinute()} method at regular intervals, until the item
+     * is deregistered.
+     * <p>
+     * An item can only be registered once at a time, whether strongly or
+     * weakly, so that its registration is the only handle which can
+     * deregister it.
      *
      * @param timedItem a timed item to register with the manager
+     * @return handle which can be used to deregister the item
+     * @throws IllegalArgumentException if the item is already registered
      * @ass1
      */
-    public void registerTimedItem(TimedItem timedItem) {
-        this.timedItems.add(timedItem);
+    public Registration registerTimedItem(TimedItem timedItem)
+            throws IllegalArgumentException {
+        this.checkNotRegistered(timedItem);
+        Registration registration = new Registration(this, timedItem,
+                this.registrationCount++);
+        this.registrations.put(timedItem, registration);
+        if (this.pendingRemovals.remove(timedItem)) {
+            // deregistered since the last update, so is still in its list
+            if (this.eventDriven && timedItem.isIndependent()
+                    && timedItem instanceof ScheduledItem) {
+                this.schedule((ScheduledItem) timedItem);
+            }
+            return registration;
+        }
+        if (timedItem.isIndependent() && timedItem instanceof ScheduledItem) {
+            this.scheduledItems.add(timedItem);
+            if (this.eventDriven) {
+                this.schedule((ScheduledItem) timedItem);
+            }
+        } else {
+            this.addEntry(timedItem);
+        }
+        return registration;
+    }
+
+    /**
+     * Registers a timed item with the manager, without preventing the item
+     * from being garbage collected.
+     * <p>
+     * The item is updated every minute for as long as something else refers
+     * to it, such as the room holding it, and is deregistered automatically
+     * once it has been collected. Weakly registered items are updated every
+     * minute even when the manager is event-driven.
+     *
+     * @param timedItem a timed item to register with the manager
+     * @return handle which can be used to deregister the item
+     * @throws IllegalArgumentException if the item is already registered,
+     * either weakly or with {@link #registerTimedItem(TimedItem)}
+     */
+    public Registration registerTimedItemWeakly(TimedItem timedItem)
+            throws IllegalArgumentException {
+        this.checkNotRegistered(timedItem);
+        WeakEntry entry = new WeakEntry(timedItem, this.collected);
+        Registration registration = new Registration(this, entry,
+                this.registrationCount++);
+        entry.registration = registration;
+        this.weakRegistrations.add(registration);
+        this.addEntry(entry);
+        return registration;
+    }
+
+    /**
+     * Checks that the given item is not already registered with the manager,
+     * either strongly or weakly.
+     *
+     * @param timedItem item about to be registered
+     * @throws IllegalArgumentException if the item is already registered
+     */
+    private void checkNotRegistered(TimedItem timedItem)
+            throws IllegalArgumentException {
+        boolean registered = this.registrations.containsKey(timedItem);
+        for (Registration weak : this.weakRegistrations) {
+            if (weak.getItem() == timedItem) {
+                registered = true;
+            }
+        }
+        if (registered) {
+            throw new IllegalArgumentException(
+                    "Timed item is already registered");
+        }
+    }
+
+    /**
+     * Adds an entry to the list of items updated every minute.
+     *
+     * @param entry item, or weak entry referring to an item
+     */
+    private void addEntry(TimedItem entry) {
+        if (entry.isIndependent()) {
+            this.independentItems.add(entry);
+        } else {
+            this.timedItems.add(entry);
+        }
+    }
+
+    /**
+     * Deregisters a timed item, so that the manager no longer updates it.
+     * <p>
+     * A scheduled item is brought up to date before it is deregistered.
+     *
+     * @param timedItem item to deregister
+     * @return true if the item was registered
+     */
+    public boolean deregisterTimedItem(TimedItem timedItem) {
+        Registration registration = this.registrations.get(timedItem);
+        if (registration != null) {
+            return registration.deregister();
+        }
+        for (Registration weak : this.weakRegistrations) {
+            if (weak.getItem() == timedItem) {
+                return weak.deregister();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the number of registrations made with the manager so far.
+     * <p>
+     * This can be passed to {@link #deregisterTimedItemsSince(long)} to undo
+     * every registration made after this point, for example when loading a
+     * model fails part way through.
+     *
+     * @return number of registrations made
+     */
+    public long getRegistrationCount() {
+        return this.registrationCount;
+    }
+
+    /**
+     * Deregisters every item that was registered after the manager had made
+     * the given number of registrations (see {@link #getRegistrationCount()}).
+     *
+     * @param registrationCount number of registrations to keep
+     */
+    public void deregisterTimedItemsSince(long registrationCount) {
+        List<Registration> undone = new ArrayList<>();
+        for (Registration registration : this.registrations.values()) {
+            if (registration.sequence >= registrationCount) {
+                undone.add(registration);
+            }
+        }
+        for (Registration registration : this.weakRegistrations) {
+            if (registration.sequence >= registrationCount) {
+                undone.add(registration);
+            }
+        }
+        for (Registration registration : undone) {
+            registration.deregister();
+        }
+    }
+
+    /**
+     * Returns the number of items currently registered with the manager.
+     *
+     * @return number of registered items
+     */
+    public int getRegisteredCount() {
+        this.expungeCollected();
+        return this.registrations.size() + this.weakRegistrations.size();
+    }
+
+    /**
+     * Removes a registration from the manager. Its entry is removed from the
+     * lists of items to update before the next minute is elapsed.
+     *
+     * @param registration registration to remove
+     * @return true if the registration was still active
+     */
+    private boolean remove(Registration registration) {
+        if (!registration.active) {
+            return false;
+        }
+        registration.active = false;
+        TimedItem entry = registration.entry;
+        if (entry instanceof WeakEntry) {
+            this.weakRegistrations.remove(registration);
+        } else {
+            this.registrations.remove(entry);
+            Wakeup wakeup = this.wakeups.remove(entry);
+            if (wakeup != null) {
+                boolean wasElapsing = this.elapsing;
+                this.elapsing = true;
+                try {
+                    // items woken during the current minute are already up
+                    // to date
+                    wakeup.item.advance(
+                            Math.max(0, this.ticks - wakeup.updatedAt));
+                } finally {
+                    this.elapsing = wasElapsing;
+                }
+                // leave any entries on the wheel to be ignored when due
+                wakeup.minute = Long.MAX_VALUE;
+            }
+        }
+        this.pendingRemovals.add(entry);
+        return true;
+    }
+
+    /**
+     * Deregisters weakly registered items which have been garbage collected.
+     */
+    private void expungeCollected() {
+        Object reference;
+        while ((reference = this.collected.poll()) != null) {
+            this.remove(((WeakEntry) reference).registration);
+        }
+    }
+
+    /**
+     * Removes the entries of deregistered items from the lists of items to
+     * update.
+     */
+    private void removeDeregisteredEntries() {
+        this.expungeCollected();
+        if (this.pendingRemovals.isEmpty()) {
+            return;
+        }
+        this.independentItems.removeIf(this.pendingRemovals::contains);
+        this.scheduledItems.removeIf(this.pendingRemovals::contains);
+        this.timedItems.removeIf(this.pendingRemovals::contains);
+        this.pendingRemovals.clear();
+    }
+
+    /**
+     * Returns whether independent items are updated concurrently.
+     *
+     * @return true if the manager is in parallel mode
+     */
+    public boolean isParallel() {
+        return this.parallel;
+    }
+
+    /**
+     * Sets whether independent items should be split into shards and updated
+     * concurrently on the common fork-join pool.
+     * <p>
+     * Items that are not independent are always updated sequentially on the
+     * calling thread, after all independent items have been updated.
+     *
+     * @param parallel whether to update independent items concurrently
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Returns whether scheduled items are only woken when their state
+     * changes.
+     *
+     * @return true if the manager is in event-driven mode
+     */
+    public boolean isEventDriven() {
+        return this.eventDriven;
+    }
+
+    /**
+     * Sets whether independent {@link ScheduledItem}s should only be woken
+     * at the minute their observable state changes, rather than updated
+     * every minute.
+     * <p>
+     * While the manager is event-driven, a scheduled item's own count of
+     * minutes elapsed falls behind between wake-ups (see
+     * {@link #getDeferredMinutes(TimedItem)}). Wake-ups are always performed
+     * sequentially, in the order the changes occur. Leaving event-driven mode
+     * brings every scheduled item up to date.
+     * <p>
+     * Event-driven mode is fastest when most items keep the same state for
+     * many minutes. If almost every item changes at every update, updating
+     * every item each minute is cheaper.
+     *
+     * @param eventDriven whether to only wake scheduled items when their
+     *                    state changes
+     */
+    public void setEventDriven(boolean eventDriven) {
+        if (eventDriven == this.eventDriven) {
+            return;
+        }
+        this.removeDeregisteredEntries();
+        this.elapsing = true;
+        try {
+            if (eventDriven) {
+                for (TimedItem item : this.scheduledItems) {
+                    this.schedule((ScheduledItem) item);
+                }
+            } else {
+                for (Wakeup wakeup : this.wakeups.values()) {
+                    wakeup.item.advance(this.ticks - wakeup.updatedAt);
+                }
+                for (List<Wakeup> bucket : this.wheel) {
+                    bucket.clear();
+                }
+                this.overflow.clear();
+                this.wakeups.clear();
+            }
+            this.eventDriven = eventDriven;
+        } finally {
+            this.elapsing = false;
+        }
+    }
+
+    /**
+     * Returns the number of minutes the manager has elapsed since it last
+     * updated the given item, because the item's state would not have
+     * changed.
+     * <p>
+     * This is always zero unless the manager is event-driven and the item is
+     * a scheduled item.
+     *
+     * @param item item registered with the manager
+     * @return number of minutes the item's own time elapsed is behind
+     */
+    public long getDeferredMinutes(TimedItem item) {
+        if (!this.eventDriven) {
+            return 0;
+        }
+        Wakeup wakeup = this.wakeups.get(item);
+        return wakeup == null ? 0 : this.ticks - wakeup.updatedAt;
+    }
+
+    /**
+     * Adds a listener to be notified whenever the observable state of a
+     * timed item changes.
+     * <p>
+     * Listeners are notified when a scheduled item is woken in event-driven
+     * mode, and when an item reports a change made outside of the manager
+     * (see {@link #notifyItemChanged(TimedItem)}). Items updated every minute
+     * do not report their changes.
+     *
+     * @param listener listener to add
+     */
+    public void addListener(TimedItemListener listener) {
+        this.listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener previously added with
+     * {@link #addListener(TimedItemListener)}.
+     *
+     * @param listener listener to remove
+     */
+    public void removeListener(TimedItemListener listener) {
+        this.listeners.remove(listener);
+    }
+
+    /**
+     * Returns the number of minutes that have been elapsed by the manager.
+     * @return number of calls to {@link #elapseOneMinute()}
+     */
+    public long getTicks() {
+        return this.ticks;
+    }
+
+    /**
+     * Returns the modification count of the timed items.
+     * <p>
+     * The count increases every time the manager elapses a minute, and every
+     * time a timed item reports a change made outside of the manager (see
+     * {@link #notifyItemChanged()}). If the count has not changed, no timed
+     * item has changed either.
+     * @return current modification count
+     */
+    public long getModificationCount() {
+        return this.modificationCount.get();
+    }
+
+    /**
+     * Records that the state of a timed item has changed.
+     * <p>
+     * Timed items should call this whenever their state changes. Changes
+     * made while the manager is elapsing a minute are already accounted for
+     * by the tick, so are ignored.
+     */
+    public void notifyItemChanged() {
+        if (!this.elapsing) {
+            this.modificationCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records that the state of the given timed item has changed, and
+     * notifies the manager's listeners.
+     * <p>
+     * In event-driven mode, the item is brought up to date and its next
+     * wake-up is rescheduled. Changes made while the manager is elapsing a
+     * minute are ignored, as for {@link #notifyItemChanged()}.
+     *
+     * @param item item which has changed
+     */
+    public void notifyItemChanged(TimedItem item) {
+        if (this.elapsing) {
+            return;
+        }
+        this.modificationCount.incrementAndGet();
+        Wakeup wakeup = this.eventDriven ? this.wakeups.get(item) : null;
+        if (wakeup != null) {
+            this.elapsing = true;
+            try {
+                wakeup.item.advance(this.ticks - wakeup.updatedAt);
+                this.reschedule(wakeup, this.ticks);
+            } finally {
+                this.elapsing = false;
+            }
+        }
+        this.fireItemChanged(item);
+    }
+
+    /**
+     * Schedules the first wake-up of a newly scheduled item.
+     *
+     * @param item item to schedule, which is up to date
+     */
+    private void schedule(ScheduledItem item) {
+        Wakeup wakeup = new Wakeup(item);
+        this.wakeups.put(item, wakeup);
+        this.reschedule(wakeup, this.ticks);
+    }
+
+    /**
+     * Schedules the next wake-up of an item. Any earlier wake-up of the item
+     * is left on the wheel, but is ignored once it is due.
+     *
+     * @param wakeup wake-up of the item
+     * @param updatedAt tick the item was last brought up to date
+     */
+    private void reschedule(Wakeup wakeup, long updatedAt) {
+        long minutes = wakeup.item.minutesUntilChange();
+        wakeup.updatedAt = updatedAt;
+        if (minutes == Long.MAX_VALUE) {
+            wakeup.minute = Long.MAX_VALUE;
+            return;
+        }
+        wakeup.minute = updatedAt + minutes;
+        if (minutes < WHEEL_SIZE) {
+            this.wheel.get((int) (wakeup.minute & (WHEEL_SIZE - 1)))
+                    .add(wakeup);
+        } else {
+            this.overflow.computeIfAbsent(wakeup.minute,
+                    minute -> new ArrayList<>()).add(wakeup);
+        }
+    }
+
+    /**
+     * Wakes every scheduled item whose state changes at the given tick,
+     * bringing it up to that tick.
+     *
+     * @param tick tick being elapsed
+     */
+    private void wakeScheduledItems(long tick) {
+        // move wake-ups that are now within one revolution onto the wheel
+        while (!this.overflow.isEmpty()
+                && this.overflow.firstKey() < tick + WHEEL_SIZE) {
+            Map.Entry<Long, List<Wakeup>> due = this.overflow.pollFirstEntry();
+            for (Wakeup wakeup : due.getValue()) {
+                if (wakeup.minute == due.getKey()) {
+                    this.wheel.get((int) (wakeup.minute & (WHEEL_SIZE - 1)))
+                            .add(wakeup);
+                }
+            }
+        }
+
+        List<Wakeup> bucket = this.wheel.get((int) (tick & (WHEEL_SIZE - 1)));
+        for (int i = 0; i < bucket.size(); i++) {
+            Wakeup wakeup = bucket.get(i);
+            if (wakeup.minute != tick) {
+                // superseded by a later wake-up
+                continue;
+            }
+            wakeup.item.advance(tick - wakeup.updatedAt);
+            this.reschedule(wakeup, tick);
+            this.fireItemChanged(wakeup.item);
+        }
+        bucket.clear();
+    }
+
+    /**
+     * Notifies every listener that the given item has changed.
+     * <p>
+     * The modification count is increased first, so listeners reading state
+     * cached against the count (such as a
+     * {@link bms.hazardevaluation.CachingHazardEvaluator}) see the change,
+     * even in the middle of a tick.
+     *
+     * @param item item which has changed
+     */
+    private void fireItemChanged(TimedItem item) {
+        if (this.listeners.isEmpty()) {
+            return;
+        }
+        this.modificationCount.incrementAndGet();
+        for (int i = 0; i < this.listeners.size(); i++) {
+            this.listeners.get(i).itemChanged(item);
+        }
     }
 
     /**
@@ -64,8 +742,277 @@ public class TimedItemManager implements TimedItem {
      */
     @Override
     public void elapseOneMinute() {
-        for (TimedItem timedItem : this.timedItems) {
-            timedItem.elapseOneMinute();
+        this.removeDeregisteredEntries();
+        this.elapsing = true;
+        try {
+            this.elapseIndependentItems(this.independentItems);
+            if (this.eventDriven) {
+                this.wakeScheduledItems(this.ticks + 1);
+            } else {
+                this.elapseIndependentItems(this.scheduledItems);
+            }
+            for (TimedItem timedItem : this.timedItems) {
+                timedItem.elapseOneMinute();
+            }
+        } finally {
+            this.ticks++;
+            this.modificationCount.incrementAndGet();
+            this.elapsing = false;
+        }
+    }
+
+    /**
+     * Elapses one minute on each of the given independent items, concurrently
+     * if the manager is in parallel mode.
+     *
+     * @param items independent items to update
+     */
+    private void elapseIndependentItems(List<TimedItem> items) {
+        if (this.parallel && items.size() > SHARD_SIZE) {
+            ForkJoinPool.commonPool().invoke(
+                    new ShardTask(items, 0, items.size()));
+        } else {
+            for (TimedItem timedItem : items) {
+                timedItem.elapseOneMinute();
+            }
+        }
+    }
+
+    /**
+     * Period during which a manager is current on a thread.
+     *
+     * @see #makeCurrent()
+     */
+    public static final class Scope implements AutoCloseable {
+        /**
+         * Manager that was current when the scope was opened, if any.
+         */
+        private final TimedItemManager previous;
+
+        /**
+         * Creates a new scope which restores the given manager when closed.
+         *
+         * @param previous manager that was current, or null
+         */
+        private Scope(TimedItemManager previous) {
+            this.previous = previous;
+        }
+
+        /**
+         * Makes the manager that was current before the scope was opened
+         * current again.
+         */
+        @Override
+        public void close() {
+            if (this.previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(this.previous);
+            }
+        }
+    }
+
+    /**
+     * Handle to an item's registration with a timed item manager.
+     */
+    public static final class Registration {
+        /**
+         * Manager the item is registered with.
+         */
+        private final TimedItemManager manager;
+
+        /**
+         * Registered item, or weak entry referring to the item.
+         */
+        private final TimedItem entry;
+
+        /**
+         * Order in which the item was registered.
+         */
+        private final long sequence;
+
+        /**
+         * Whether the item is still registered.
+         */
+        private boolean active;
+
+        /**
+         * Creates a new, active registration.
+         *
+         * @param manager manager the item is registered with
+         * @param entry registered item, or weak entry referring to the item
+         * @param sequence order in which the item was registered
+         */
+        private Registration(TimedItemManager manager, TimedItem entry,
+                             long sequence) {
+            this.manager = manager;
+            this.entry = entry;
+            this.sequence = sequence;
+            this.active = true;
+        }
+
+        /**
+         * Returns the registered item.
+         *
+         * @return registered item; null if it was registered weakly and has
+         * since been garbage collected
+         */
+        public TimedItem getItem() {
+            if (this.entry instanceof WeakEntry) {
+                return ((WeakEntry) this.entry).get();
+            }
+            return this.entry;
+        }
+
+        /**
+         * Returns whether the item is still registered with the manager.
+         *
+         * @return true if the item has not been deregistered
+         */
+        public boolean isActive() {
+            return this.active;
+        }
+
+        /**
+         * Deregisters the item, so that the manager no longer updates it.
+         *
+         * @return true if the item was still registered
+         * @see TimedItemManager#deregisterTimedItem(TimedItem)
+         */
+        public boolean deregister() {
+            return this.manager.remove(this);
+        }
+    }
+
+    /**
+     * Entry for a weakly registered item, which updates the item for as long
+     * as it has not been garbage collected.
+     */
+    private static final class WeakEntry extends WeakReference<TimedItem>
+            implements TimedItem {
+        /**
+         * Whether the item is independent.
+         */
+        private final boolean independent;
+
+        /**
+         * Registration of the item.
+         */
+        private Registration registration;
+
+        /**
+         * Creates a new entry for the given item.
+         *
+         * @param item item to refer to
+         * @param queue queue to add the entry to once the item is collected
+         */
+        private WeakEntry(TimedItem item, ReferenceQueue<TimedItem> queue) {
+            super(item, queue);
+            this.independent = item.isIndependent();
+        }
+
+        /**
+         * Elapses one minute on the item, if it has not been collected.
+         */
+        @Override
+        public void elapseOneMinute() {
+            TimedItem item = this.get();
+            if (item != null) {
+                item.elapseOneMinute();
+            }
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isIndependent() {
+            return this.independent;
+        }
+    }
+
+    /**
+     * Next wake-up of a scheduled item.
+     */
+    private static class Wakeup {
+        /**
+         * Item to wake.
+         */
+        private final ScheduledItem item;
+
+        /**
+         * Tick the item was last brought up to date.
+         */
+        private long updatedAt;
+
+        /**
+         * Tick at which the item's state next changes; or
+         * {@link Long#MAX_VALUE} if it never changes.
+         */
+        private long minute;
+
+        /**
+         * Creates a new wake-up for the given item.
+         *
+         * @param item item to wake
+         */
+        private Wakeup(ScheduledItem item) {
+            this.item = item;
+        }
+    }
+
+    /**
+     * Task which elapses one minute on a range of independent items,
+     * splitting the range in half until it is no larger than a single shard.
+     */
+    private static class ShardTask extends RecursiveAction {
+        /**
+         * Version of the serialized form, which is never used.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Items to be updated.
+         */
+        private final List<TimedItem> items;
+
+        /**
+         * Index of the first item in the range (inclusive).
+         */
+        private final int from;
+
+        /**
+         * Index of the last item in the range (exclusive).
+         */
+        private final int to;
+
+        /**
+         * Creates a new task over the given range of items.
+         *
+         * @param items items to be updated
+         * @param from index of the first item to update (inclusive)
+         * @param to index of the last item to update (exclusive)
+         */
+        private ShardTask(List<TimedItem> items, int from, int to) {
+            this.items = items;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        protected void compute() {
+            if (this.to - this.from <= SHARD_SIZE) {
+                for (int i = this.from; i < this.to; i++) {
+                    this.items.get(i).elapseOneMinute();
+                }
+            } else {
+                int middle = (this.from + this.to) >>> 1;
+                invokeAll(new ShardTask(this.items, this.from, middle),
+                        new ShardTask(this.items, middle, this.to));
+            }
         }
     }
 }
@@ -0,0 +1,71 @@
+package bms.util;
+
+import bms.sensors.NoiseSensor;
+import bms.sensors.TimedSensor;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TimedItemManagerTest {
+    /**
+     * More sensors than fit in one shard, so parallel updates are split.
+     */
+    private static final int NUM_SENSORS = 3000;
+
+    private static List<TimedSensor> createSensors(TimedItemManager manager) {
+        List<TimedSensor> sensors = new ArrayList<>();
+        TimedItemManager.Scope scope = manager.makeCurrent();
+        try {
+            for (int i = 0; i < NUM_SENSORS; i++) {
+                int[] readings = new int[2 + i % 7];
+                for (int j = 0; j < readings.length; j++) {
+                    readings[j] = 40 + (i * 31 + j * 17) % 50;
+                }
+                sensors.add(new NoiseSensor(readings, 1 + i % 5));
+            }
+        } finally {
+            scope.close();
+        }
+        return sensors;
+    }
+
+    private static long sumReadings(List<TimedSensor> sensors) {
+        long sum = 0;
+        for (TimedSensor sensor : sensors) {
+            sum += sensor.getCurrentReading();
+        }
+        return sum;
+    }
+
+    @Test
+    public void parallelMatchesSequential() {
+        TimedItemManager sequential = new TimedItemManager();
+        TimedItemManager parallel = new TimedItemManager();
+        parallel.setParallel(true);
+        List<TimedSensor> sequentialSensors = createSensors(sequential);
+        List<TimedSensor> parallelSensors = createSensors(parallel);
+
+        // updated after every independent item, so sees this minute's
+        // readings
+        List<Long> seen = new ArrayList<>();
+        parallel.registerTimedItem(
+                () -> seen.add(sumReadings(parallelSensors)));
+
+        for (int minute = 1; minute <= 40; minute++) {
+            sequential.elapseOneMinute();
+            parallel.elapseOneMinute();
+            for (int i = 0; i < NUM_SENSORS; i++) {
+                Assert.assertEquals("sensor " + i + " at minute " + minute,
+                        sequentialSensors.get(i).getCurrentReading(),
+                        parallelSensors.get(i).getCurrentReading());
+                Assert.assertEquals(minute,
+                        parallelSensors.get(i).getTimeElapsed());
+            }
+            Assert.assertEquals(minute, seen.size());
+            Assert.assertEquals(sumReadings(sequentialSensors),
+                    (long) seen.get(minute - 1));
+        }
+    }
+}
@@ -1,34 +1,85 @@
 package bms.sensors;
 
 import bms.util.Encodable;
+import bms.util.ScheduledItem;
 import bms.util.TimedItem;
 import bms.util.TimedItemManager;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
 
 /**
  * An abstract class to represent a sensor that iterates through observed values
  * on a timer.
  */
-public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
+public abstract class TimedSensor implements ScheduledItem, Sensor,
+        Encodable {
 
     /**
      * Data array representing the readings observed by the sensor.
      * <p>
-     * Readings taken one minute apart.
+     * Readings taken one minute apart. When the sensor is held in a
+     * {@link SensorStore}, this array is shared with other sensors and the
+     * sensor's readings start at {@link #readingsOffset}. Null if the
+     * readings are held off-heap in {@link #offHeapReadings}.
      */
     private int[] sensorReadings;
 
+    /**
+     * Readings mapped from a {@link SensorTrace}; null if the readings are
+     * held in {@link #sensorReadings}.
+     */
+    private IntBuffer offHeapReadings;
+
+    /**
+     * Position of the sensor's first reading in {@link #sensorReadings}.
+     */
+    private int readingsOffset;
+
+    /**
+     * Number of readings observed by the sensor.
+     */
+    private int readingsLength;
+
+    /**
+     * Store holding this sensor's timing state; null if the sensor keeps its
+     * own state.
+     */
+    private SensorStore store;
+
+    /**
+     * Slot of this sensor in its store, if it has one.
+     */
+    private int storeSlot;
+
+    /**
+     * Manager the sensor was created under, which it reports changes to.
+     */
+    private TimedItemManager manager;
+
+    /**
+     * History of recent readings and hazard levels; null if the sensor does
+     * not keep a history.
+     */
+    private SensorHistory history;
+
     /**
      * The current sensor reading observed by the sensor.
      */
     private int currentReading;
 
+    /**
+     * Position of the current sensor reading in the sensor readings array.
+     */
+    private int currentIndex;
+
     /**
      * The amount of time in minutes that the sensor has been running
      * (according to the system, not real life).
      */
-    private int timeElapsed;
+    private long timeElapsed;
 
     /**
      * The number of minutes that must pass before the current sensor
@@ -36,6 +87,29 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      */
     private int updateFrequency;
 
+    /**
+     * Value of {@link #changeIndex} before any search for a change.
+     */
+    private static final int NOT_SEARCHED = -2;
+
+    /**
+     * Value of {@link #changeIndex} when every reading is equal.
+     */
+    private static final int NO_CHANGE = -1;
+
+    /**
+     * Position of the first reading after {@link #changeSearchStart} that
+     * differs from the reading there, as found by the last search in
+     * {@link #minutesUntilChange()}; or NO_CHANGE or NOT_SEARCHED.
+     */
+    private int changeIndex = NOT_SEARCHED;
+
+    /**
+     * Position the last search for a change started from. Every reading from
+     * this position up to {@link #changeIndex} is equal.
+     */
+    private int changeSearchStart;
+
     /**
      * Creates a new timed sensor, using the provided list of sensor readings.
      * These represent "raw" data values, and have different meanings depending
@@ -51,7 +125,13 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      * constructor must return the first element of the given array.
      * <p>
      * The sensor should be registered as a timed item, see
-     * {@link TimedItemManager#registerTimedItem(TimedItem)}.
+     * {@link TimedItemManager#registerTimedItem(TimedItem)}. It registers
+     * with the manager that is current when it is created (see
+     * {@link TimedItemManager#getInstance()}).
+     * <p>
+     * The readings are interned through the {@link ReadingsPool}, so sensors
+     * with identical readings share a single array, and later changes to the
+     * given array do not affect the sensor.
      *
      * @param sensorReadings a non-empty array of sensor readings
      * @param updateFrequency indicates how often the sensor readings updates,
@@ -63,6 +143,30 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      */
     public TimedSensor(int[] sensorReadings, int updateFrequency) throws
             IllegalArgumentException {
+        this(null, sensorReadings, updateFrequency);
+    }
+
+    /**
+     * Creates a new timed sensor held in the given sensor store, using the
+     * provided list of sensor readings.
+     * <p>
+     * The readings are copied into the store, which keeps the sensor's
+     * timing state and updates it along with every other sensor in the
+     * store. The sensor itself is not registered as a timed item.
+     * <p>
+     * If the store is null, this is equivalent to
+     * {@link #TimedSensor(int[], int)}.
+     *
+     * @param store store to hold the sensor's state, or null
+     * @param sensorReadings a non-empty array of sensor readings
+     * @param updateFrequency indicates how often the sensor readings updates,
+     *                        in minutes
+     * @throws IllegalArgumentException if updateFrequency is &lt; 1 or &gt; 5;
+     * or if sensorReadings is null; if sensorReadings is empty; or if any
+     * value in sensorReadings is less than zero
+     */
+    public TimedSensor(SensorStore store, int[] sensorReadings,
+                       int updateFrequency) throws IllegalArgumentException {
         if ((updateFrequency < 1) || (updateFrequency > 5)) {
             throw new IllegalArgumentException("Update frequency must be "
                     + "between 1 and 5 minutes (inclusive)");
@@ -77,11 +181,79 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
                         "All sensor readings must be non-negative");
             }
         }
-        this.sensorReadings = sensorReadings;
-        this.currentReading = sensorReadings[0];
+        this.readingsLength = sensorReadings.length;
+        this.updateFrequency = updateFrequency;
+        this.timeElapsed = 0;
+        this.store = store;
+        this.manager = TimedItemManager.getInstance();
+        if (store == null) {
+            this.sensorReadings = ReadingsPool.intern(sensorReadings);
+            this.readingsOffset = 0;
+            this.currentReading = sensorReadings[0];
+            this.manager.registerTimedItem(this);
+        } else {
+            this.storeSlot = store.add(sensorReadings, updateFrequency);
+            this.sensorReadings = store.getReadings(this.storeSlot);
+            this.readingsOffset = store.getOffset(this.storeSlot);
+        }
+    }
+
+    /**
+     * Removes this sensor from the store holding it, if any. Called by
+     * subclasses whose own checks fail after this class has added the sensor
+     * to its store, so the store does not keep advancing an unused slot.
+     */
+    void releaseStoreSlot() {
+        if (this.store != null) {
+            this.store.truncate(this.storeSlot);
+        }
+    }
+
+    /**
+     * Creates a new timed sensor whose readings are those recorded for the
+     * given sensor in a sensor trace.
+     * <p>
+     * The readings are read directly from the memory-mapped trace file
+     * rather than copied onto the heap, so the sensor must not be used after
+     * the trace is closed. Otherwise the sensor behaves exactly like one
+     * created with {@link #TimedSensor(int[], int)}.
+     *
+     * @param trace trace holding the sensor readings
+     * @param traceIndex index of the sensor within the trace
+     * @param updateFrequency indicates how often the sensor readings updates,
+     *                        in minutes
+     * @throws IllegalArgumentException if updateFrequency is &lt; 1 or &gt; 5;
+     * or if trace is null; if there is no sensor with the given index in the
+     * trace; if the sensor has no readings; or if any of its readings are
+     * less than zero
+     * @throws IllegalStateException if the trace has been closed
+     */
+    public TimedSensor(SensorTrace trace, int traceIndex, int updateFrequency)
+            throws IllegalArgumentException, IllegalStateException {
+        if ((updateFrequency < 1) || (updateFrequency > 5)) {
+            throw new IllegalArgumentException("Update frequency must be "
+                    + "between 1 and 5 minutes (inclusive)");
+        }
+        if (trace == null || traceIndex < 0
+                || traceIndex >= trace.getSensorCount()
+                || trace.getReadingsLength(traceIndex) == 0) {
+            throw new IllegalArgumentException("Trace must hold at least one "
+                    + "reading for the sensor");
+        }
+        IntBuffer readings = trace.getReadings(traceIndex);
+        for (int i = 0; i < readings.limit(); i++) {
+            if (readings.get(i) < 0) {
+                throw new IllegalArgumentException(
+                        "All sensor readings must be non-negative");
+            }
+        }
+        this.offHeapReadings = readings;
+        this.readingsLength = readings.limit();
+        this.currentReading = readings.get(0);
         this.updateFrequency = updateFrequency;
         this.timeElapsed = 0;
-        TimedItemManager.getInstance().registerTimedItem(this);
+        this.manager = TimedItemManager.getInstance();
+        this.manager.registerTimedItem(this);
     }
 
     /**
@@ -91,6 +263,10 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      * @ass1
      */
     public int getCurrentReading() {
+        if (this.store != null) {
+            return this.sensorReadings[this.readingsOffset
+                    + this.store.getCurrentIndex(this.storeSlot)];
+        }
         return this.currentReading;
     }
 
@@ -102,8 +278,21 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      * @return the sensor's time elapsed in minutes
      * @ass1
      */
-    public int getTimeElapsed() {
-        return timeElapsed;
+    public long getTimeElapsed() {
+        if (this.store != null) {
+            return this.store.getTimeElapsed(this.storeSlot);
+        }
+        return timeElapsed + this.manager.getDeferredMinutes(this);
+    }
+
+    /**
+     * Returns the timed item manager the sensor was created under, which
+     * updates its readings.
+     *
+     * @return manager of the sensor
+     */
+    public TimedItemManager getManager() {
+        return this.manager;
     }
 
     /**
@@ -117,6 +306,57 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
         return updateFrequency;
     }
 
+    /**
+     * Returns the number of readings observed by the sensor before they wrap
+     * around to the first reading.
+     *
+     * @return length of the sensor readings array
+     */
+    public int getReadingsLength() {
+        return this.readingsLength;
+    }
+
+    /**
+     * Returns the reading at the given position in the sensor readings array.
+     *
+     * @param index position of the reading, from 0 to
+     *              {@code getReadingsLength() - 1}
+     * @return sensor reading at the given position
+     * @throws IndexOutOfBoundsException if the index is out of range
+     */
+    public int getReading(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= this.readingsLength) {
+            throw new IndexOutOfBoundsException("Reading index " + index
+                    + " out of range for " + this.readingsLength
+                    + " readings");
+        }
+        return this.readingAtIndex(index);
+    }
+
+    /**
+     * Returns the reading at the given position, wherever the readings are
+     * stored.
+     *
+     * @param index position of the reading, assumed to be in range
+     * @return sensor reading at the given position
+     */
+    private int readingAtIndex(int index) {
+        if (this.sensorReadings != null) {
+            return this.sensorReadings[this.readingsOffset + index];
+        }
+        return this.offHeapReadings.get(index);
+    }
+
+    /**
+     * Returns whether this sensor's readings are held off-heap, in a
+     * memory-mapped {@link SensorTrace}.
+     *
+     * @return true if the readings are off-heap
+     */
+    public boolean hasOffHeapReadings() {
+        return this.offHeapReadings != null;
+    }
+
     /**
      * Increments the time elapsed (in minutes) by one.
      * <p>
@@ -131,21 +371,283 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      *
      */
     public void elapseOneMinute() {
-        this.timeElapsed++;
+        this.advance(1);
+    }
+
+    /**
+     * Increments the time elapsed (in minutes) by the given number of
+     * minutes, updating the current sensor reading to the reading observed at
+     * the new time elapsed.
+     * <p>
+     * Calling this method is equivalent to calling
+     * {@link #elapseOneMinute()} the given number of times, but takes
+     * constant time regardless of the number of minutes.
+     *
+     * @param minutes number of minutes to elapse
+     * @throws IllegalArgumentException if minutes &lt; 0
+     */
+    public void advance(long minutes) throws IllegalArgumentException {
+        if (minutes < 0) {
+            throw new IllegalArgumentException(
+                    "Cannot advance by a negative number of minutes");
+        }
+        if (this.history == null) {
+            this.step(minutes);
+        } else {
+            // only the most recent minutes fit in the history
+            long skipped = Math.max(0, minutes - this.history.getCapacity());
+            this.step(skipped);
+            for (long minute = skipped; minute < minutes; minute++) {
+                this.step(1);
+                this.recordHistory();
+            }
+        }
+        this.manager.notifyItemChanged(this);
+    }
+
+    /**
+     * Increments the time elapsed by the given non-negative number of
+     * minutes, without recording any history.
+     *
+     * @param minutes number of minutes to elapse
+     */
+    private void step(long minutes) {
+        if (this.store != null) {
+            this.store.advance(this.storeSlot, minutes);
+        } else {
+            this.timeElapsed += minutes;
+            this.currentIndex = this.indexAt(this.timeElapsed);
+            this.currentReading = this.readingAtIndex(this.currentIndex);
+        }
+    }
+
+    /**
+     * Starts keeping a history of the readings and hazard levels observed by
+     * this sensor in each of the most recent minutes, replacing any existing
+     * history.
+     * <p>
+     * The current minute is recorded straight away, and each later minute is
+     * recorded as the sensor is advanced. Hazard levels are recorded as 0 for
+     * sensors that are not hazard sensors.
+     * <p>
+     * Sensors held in a {@link SensorStore} are advanced by their store, so
+     * cannot keep a history. While the timed item manager is event-driven,
+     * the history is only brought up to date when the sensor is woken.
+     *
+     * @param capacity number of minutes to keep
+     * @return the new history
+     * @throws IllegalArgumentException if capacity &lt; 1
+     * @throws IllegalStateException if the sensor is held in a sensor store
+     */
+    public SensorHistory enableHistory(int capacity)
+            throws IllegalArgumentException, IllegalStateException {
+        if (this.store != null) {
+            throw new IllegalStateException(
+                    "Sensors in a store cannot keep a history");
+        }
+        this.history = new SensorHistory(capacity);
+        this.recordHistory();
+        return this.history;
+    }
+
+    /**
+     * Stops keeping a history of this sensor's readings.
+     */
+    public void disableHistory() {
+        this.history = null;
+    }
+
+    /**
+     * Returns the history of this sensor's recent readings and hazard
+     * levels.
+     *
+     * @return history; null if the sensor does not keep a history
+     * @see #enableHistory(int)
+     */
+    public SensorHistory getHistory() {
+        return this.history;
+    }
+
+    /**
+     * Records the current reading and hazard level in the history.
+     */
+    private void recordHistory() {
+        int hazardLevel = this instanceof HazardSensor
+                ? ((HazardSensor) this).getHazardLevel() : 0;
+        this.history.record(this.getCurrentReading(), hazardLevel);
+    }
+
+    /**
+     * Returns the number of minutes until the current sensor reading next
+     * changes to a different value.
+     * <p>
+     * Consecutive equal readings are skipped over, so sensors whose readings
+     * rarely change are rarely woken by an event-driven
+     * {@link TimedItemManager}.
+     *
+     * @return number of minutes until the reading changes; or
+     * {@link Long#MAX_VALUE} if all the readings are equal
+     */
+    @Override
+    public long minutesUntilChange() {
+        if (this.changeIndex == NO_CHANGE) {
+            return Long.MAX_VALUE;
+        }
+        long timeElapsed = this.store != null
+                ? this.store.getTimeElapsed(this.storeSlot) : this.timeElapsed;
+        int index = this.getCurrentIndex();
+        // readings only move forward, so the last search still holds while
+        // the current reading is within the run of equal readings it found
+        if (this.changeIndex == NOT_SEARCHED
+                || this.distance(this.changeSearchStart, index)
+                >= this.distance(this.changeSearchStart, this.changeIndex)) {
+            this.changeIndex = this.findChange(index);
+            this.changeSearchStart = index;
+            if (this.changeIndex == NO_CHANGE) {
+                return Long.MAX_VALUE;
+            }
+        }
+        long untilUpdate = this.updateFrequency
+                - timeElapsed % this.updateFrequency;
+        return untilUpdate + (long) (this.distance(index, this.changeIndex)
+                - 1) * this.updateFrequency;
+    }
+
+    /**
+     * Finds the first reading after the given position that differs from the
+     * reading at that position, wrapping around the readings.
+     *
+     * @param start position to search from
+     * @return position of the differing reading; or NO_CHANGE if every
+     * reading is equal
+     */
+    private int findChange(int start) {
+        int current = this.readingAtIndex(start);
+        int index = start;
+        for (int i = 0; i < this.readingsLength - 1; i++) {
+            index = index + 1 == this.readingsLength ? 0 : index + 1;
+            if (this.readingAtIndex(index) != current) {
+                return index;
+            }
+        }
+        return NO_CHANGE;
+    }
+
+    /**
+     * Returns the number of updates needed to move from one position in the
+     * readings to another, wrapping around the readings.
+     *
+     * @param from starting position
+     * @param to final position
+     * @return number of updates, between 0 and the number of readings - 1
+     */
+    private int distance(int from, int to) {
+        int distance = to - from;
+        return distance < 0 ? distance + this.readingsLength : distance;
+    }
 
-        // calculate the time taken before wrapping around to the starting value
-        // again
-        int rotationDuration = this.sensorReadings.length
-                * this.updateFrequency;
+    /**
+     * Returns the sensor reading that is observed once the given number of
+     * minutes have elapsed since the sensor was instantiated.
+     * <p>
+     * The reading is computed directly from the sensor readings array and
+     * update frequency, so does not depend on the current time elapsed.
+     *
+     * @param minute number of minutes elapsed since instantiation
+     * @return the sensor reading observed at the given minute
+     * @throws IllegalArgumentException if minute &lt; 0
+     */
+    public int readingAt(long minute) throws IllegalArgumentException {
+        if (minute < 0) {
+            throw new IllegalArgumentException(
+                    "Minute must be non-negative");
+        }
+        return this.readingAtIndex(this.indexAt(minute));
+    }
 
-        // calculate the time remaining in the current rotation
-        int timeRemainingInRotation =  this.timeElapsed % rotationDuration;
+    /**
+     * Returns the position in the sensor readings array of the reading
+     * observed at the given non-negative minute.
+     *
+     * @param minute number of minutes elapsed since instantiation
+     * @return index into the sensor readings array
+     */
+    private int indexAt(long minute) {
+        // number of updates that have occurred, wrapped around to the start
+        // of the readings array
+        return (int) ((minute / this.updateFrequency)
+                % this.readingsLength);
+    }
 
-        // index is time remaining in the current rotation divided by the update
-        // frequency
-        int index = timeRemainingInRotation / this.updateFrequency;
+    /**
+     * Returns the position of the current sensor reading in the sensor
+     * readings array, such that
+     * {@code getReading(getCurrentIndex()) == getCurrentReading()}.
+     *
+     * @return index of the current sensor reading
+     */
+    public int getCurrentIndex() {
+        if (this.store != null) {
+            return this.store.getCurrentIndex(this.storeSlot);
+        }
+        return this.currentIndex;
+    }
+
+    /**
+     * Returns the table of hazard levels this sensor looks up for each of
+     * its readings, if it has one, such that
+     * {@code getHazardLevelTable()[getCurrentIndex()]} is the sensor's
+     * current hazard level.
+     * <p>
+     * The table is shared with other sensors, so must not be modified.
+     *
+     * @return table of hazard levels, indexed like the sensor readings; null
+     * if the sensor does not look up its hazard levels in a table
+     * @see #createLevelTable(IntUnaryOperator)
+     */
+    public byte[] getHazardLevelTable() {
+        return null;
+    }
+
+    /**
+     * Creates a lookup table holding a level for each of this sensor's
+     * readings, indexed in the same way as the sensor readings array.
+     * <p>
+     * Subclasses use this to evaluate their hazard or comfort levels once
+     * per reading at construction, then look up the level for
+     * {@link #getCurrentIndex()} instead of recomputing it each time.
+     * <p>
+     * Sensors with off-heap readings may have far more readings than fit on
+     * the heap, so no table is created for them and levels should be
+     * calculated from the current reading instead.
+     *
+     * @param levelFunction maps a sensor reading to a level between 0 and
+     *                      100 inclusive
+     * @return table of levels, one per sensor reading, shared with other
+     * sensors with the same levels (see {@link ReadingsPool}); null if the
+     * readings are held off-heap
+     */
+    protected byte[] createLevelTable(IntUnaryOperator levelFunction) {
+        if (this.hasOffHeapReadings()) {
+            return null;
+        }
+        byte[] table = new byte[this.readingsLength];
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (byte) levelFunction.applyAsInt(
+                    this.readingAtIndex(i));
+        }
+        return ReadingsPool.intern(table);
+    }
 
-        this.currentReading = this.sensorReadings[index];
+    /**
+     * Timed sensors only update their own readings, so may be updated
+     * concurrently with other sensors.
+     *
+     * @return true
+     */
+    @Override
+    public boolean isIndependent() {
+        return true;
     }
 
     /**
@@ -160,7 +662,26 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
         return this.getClass().getSimpleName()
                 .equals(sensor.getClass().getSimpleName())
                 && this.updateFrequency == sensor.updateFrequency
-                && Arrays.equals(this.sensorReadings, sensor.sensorReadings);
+                && this.readingsEqual(sensor);
+    }
+
+    /**
+     * Returns whether this sensor has the same readings, in the same order,
+     * as the given sensor.
+     *
+     * @param sensor sensor to compare readings with
+     * @return true if the readings are equal
+     */
+    private boolean readingsEqual(TimedSensor sensor) {
+        if (this.readingsLength != sensor.readingsLength) {
+            return false;
+        }
+        for (int i = 0; i < this.readingsLength; i++) {
+            if (this.readingAtIndex(i) != sensor.readingAtIndex(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -169,8 +690,8 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
     @Override
     public int hashCode() {
         int hashcode = 1;
-        for (int reading : this.sensorReadings) {
-            hashcode *= reading;
+        for (int i = 0; i < this.readingsLength; i++) {
+            hashcode *= this.readingAtIndex(i);
         }
         return this.getClass().hashCode() * this.updateFrequency * hashcode;
     }
@@ -193,7 +714,8 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
     public String toString() {
         return String.format("TimedSensor: freq=%d, readings=%s",
                 this.updateFrequency,
-                String.join(",", Arrays.stream(this.sensorReadings)
+                String.join(",", IntStream.range(0, this.readingsLength)
+                        .map(this::readingAtIndex)
                         .mapToObj(String::valueOf)
                         .toArray(String[]::new)));
     }
@@ -203,8 +725,26 @@ public abstract class TimedSensor implements TimedItem, Sensor, Encodable {
      */
     @Override
     public String encode() {
-        return String.join(",", Arrays.stream(this.sensorReadings)
-                .mapToObj(String::valueOf)
-                .toArray(String[]::new));
+        return Encodable.encodeToString(this);
+    }
+
+    /**
+     * Appends this sensor's readings to the given destination, as a
+     * comma-separated list.
+     * <p>
+     * Subclasses should override this method to also append their type and
+     * any other values required to recreate the sensor.
+     *
+     * @param out destination to append the encoded representation to
+     * @throws IOException if an IOException is encountered when appending
+     */
+    @Override
+    public void encodeTo(Appendable out) throws IOException {
+        for (int i = 0; i < this.readingsLength; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(String.valueOf(this.readingAtIndex(i)));
+        }
     }
 }
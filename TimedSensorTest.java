@@ -0,0 +1,168 @@
+package bms.sensors;
+
+import bms.util.TimedItem;
+import bms.util.TimedItemListener;
+import bms.util.TimedItemManager;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TimedSensorTest {
+    private TimedSensor sensor;
+
+    @Before
+    public void setUp() {
+        sensor = new NoiseSensor(new int[]{55, 62, 69, 63}, 3);
+    }
+
+    @Test
+    public void readingAtStart() {
+        Assert.assertEquals(55, sensor.readingAt(0));
+    }
+
+    @Test
+    public void readingAtMatchesElapseOneMinute() {
+        for (int minute = 1; minute <= 30; minute++) {
+            sensor.elapseOneMinute();
+            Assert.assertEquals(sensor.getCurrentReading(),
+                                sensor.readingAt(minute));
+        }
+    }
+
+    @Test
+    public void readingAtWrapsAround() {
+        Assert.assertEquals(63, sensor.readingAt(11));
+        Assert.assertEquals(55, sensor.readingAt(12));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readingAtNegative() {
+        sensor.readingAt(-1);
+    }
+
+    @Test
+    public void advanceMatchesElapseOneMinute() {
+        NoiseSensor other = new NoiseSensor(new int[]{55, 62, 69, 63}, 3);
+        for (int i = 0; i < 10; i++) {
+            other.elapseOneMinute();
+        }
+        sensor.advance(10);
+        Assert.assertEquals(other.getCurrentReading(),
+                            sensor.getCurrentReading());
+        Assert.assertEquals(10, sensor.getTimeElapsed());
+    }
+
+    @Test
+    public void advanceLongRun() {
+        final long week = 7 * 24 * 60;
+        sensor.advance(week * 52 * 100);
+        Assert.assertEquals(week * 52 * 100, sensor.getTimeElapsed());
+        Assert.assertEquals(sensor.readingAt(week * 52 * 100),
+                            sensor.getCurrentReading());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void advanceNegative() {
+        sensor.advance(-1);
+    }
+
+    @Test
+    public void minutesUntilChangeSkipsRepeatedReadings() {
+        TimedSensor steady = new NoiseSensor(new int[]{50, 50, 50, 60}, 2);
+        Assert.assertEquals(6, steady.minutesUntilChange());
+        steady.advance(7);
+        Assert.assertEquals(1, steady.minutesUntilChange());
+        TimedSensor constant = new NoiseSensor(new int[]{50, 50}, 1);
+        Assert.assertEquals(Long.MAX_VALUE, constant.minutesUntilChange());
+    }
+
+    @Test
+    public void minutesUntilChangeFollowsAdvance() {
+        TimedSensor runs = new NoiseSensor(
+                new int[]{50, 50, 60, 60, 60, 50, 70}, 3);
+        long minute = 0;
+        for (int step = 0; step < 60; step++) {
+            long expected = 1;
+            while (runs.readingAt(minute + expected)
+                    == runs.readingAt(minute)) {
+                expected++;
+            }
+            Assert.assertEquals(expected, runs.minutesUntilChange());
+            // sometimes jump more than a whole cycle of readings
+            long minutes = step % 7 == 0 ? 25 : 1;
+            runs.advance(minutes);
+            minute += minutes;
+        }
+    }
+
+    @Test
+    public void eventDrivenWakesOnlyOnChange() {
+        TimedItemManager manager = TimedItemManager.getInstance();
+        TimedSensor steady = new NoiseSensor(new int[]{50, 50, 50, 60}, 2);
+        List<TimedItem> changes = new ArrayList<>();
+        TimedItemListener listener = item -> {
+            if (item == steady) {
+                changes.add(item);
+            }
+        };
+        manager.addListener(listener);
+        manager.setEventDriven(true);
+        try {
+            for (int minute = 1; minute <= 8; minute++) {
+                manager.elapseOneMinute();
+                Assert.assertEquals(minute, steady.getTimeElapsed());
+                Assert.assertEquals(steady.readingAt(minute),
+                                    steady.getCurrentReading());
+            }
+        } finally {
+            manager.setEventDriven(false);
+            manager.removeListener(listener);
+        }
+        Assert.assertEquals(2, changes.size());
+        Assert.assertEquals(8, steady.getTimeElapsed());
+    }
+
+    @Test
+    public void sensorsRegisterWithCurrentManager() {
+        TimedItemManager scenario = new TimedItemManager();
+        TimedSensor scenarioSensor;
+        TimedItemManager.Scope scope = scenario.makeCurrent();
+        try {
+            Assert.assertSame(scenario, TimedItemManager.getInstance());
+            scenarioSensor = new NoiseSensor(new int[]{55, 62, 69, 63}, 1);
+        } finally {
+            scope.close();
+        }
+        Assert.assertNotSame(scenario, TimedItemManager.getInstance());
+
+        TimedItemManager.getInstance().elapseOneMinute();
+        scenario.elapseOneMinute();
+        scenario.elapseOneMinute();
+        Assert.assertEquals(1, sensor.getTimeElapsed());
+        Assert.assertEquals(2, scenarioSensor.getTimeElapsed());
+        Assert.assertEquals(69, scenarioSensor.getCurrentReading());
+    }
+
+    @Test
+    public void historyKeepsRecentMinutes() {
+        SensorHistory history = sensor.enableHistory(4);
+        Assert.assertEquals(1, history.size());
+        Assert.assertEquals(55, history.getReading(0));
+        sensor.advance(8);
+        // minutes 5 to 8 observe 62, 69, 69 and 69
+        Assert.assertEquals(4, history.size());
+        Assert.assertEquals(69, history.getReading(0));
+        Assert.assertEquals(62, history.getReading(3));
+        Assert.assertEquals(62, history.getMinReading());
+        Assert.assertEquals(69, history.getMaxReading());
+        Assert.assertEquals(67.25, history.getMeanReading(), 1e-9);
+        Assert.assertEquals(((NoiseSensor) sensor).getHazardLevel(),
+                            history.getHazardLevel(0));
+        sensor.elapseOneMinute();
+        Assert.assertEquals(63, history.getReading(0));
+        Assert.assertEquals(63, history.getMinReading());
+    }
+}
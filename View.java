@@ -451,11 +451,20 @@ public class View {
         timeElapsedLabel.setMaxHeight(Double.MAX_VALUE); // centered vertically
         timeElapsedLabel.setAlignment(Pos.CENTER);
 
+        var saveStatusLabel = new Label();
+        saveStatusLabel.textProperty().bind(
+                viewModel.getSaveStatusTextProperty());
+        saveStatusLabel.setMaxHeight(Double.MAX_VALUE);
+        saveStatusLabel.setAlignment(Pos.CENTER);
+
         var buttonContainer = new HBox(10);
         buttonContainer.getChildren().addAll(pauseButton, saveButton,
                 resetViewButton, helpButton);
+        var statusContainer = new HBox(10);
+        statusContainer.getChildren().addAll(saveStatusLabel,
+                timeElapsedLabel);
         infoBar.setLeft(buttonContainer);
-        infoBar.setRight(timeElapsedLabel);
+        infoBar.setRight(statusContainer);
         return infoBar;
     }
 
@@ -1,6 +1,8 @@
 package bms.display;
 
+import bms.building.BinarySnapshot;
 import bms.building.Building;
+import bms.building.BuildingInitialiser;
 import bms.exceptions.*;
 import bms.floor.Floor;
 import bms.hazardevaluation.RuleBasedHazardEvaluator;
@@ -9,14 +11,17 @@ import bms.room.Room;
 import bms.room.RoomType;
 import bms.sensors.*;
 import bms.util.TimedItemManager;
+import javafx.application.Platform;
 import javafx.beans.property.*;
 import javafx.scene.control.Alert;
 import javafx.scene.input.KeyCode;
 
-import java.io.BufferedWriter;
-import java.io.FileWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * View model for the GUI - you will need to implement a few methods here.
@@ -37,6 +42,17 @@ public class ViewModel {
 
     private BooleanProperty changed = new SimpleBooleanProperty(false);
 
+    private StringProperty saveStatusText = new SimpleStringProperty("");
+
+    private ExecutorService saveExecutor = Executors.newSingleThreadExecutor(
+            runnable -> {
+                Thread thread = new Thread(runnable, "quicksave");
+                thread.setDaemon(true);
+                return thread;
+            });
+    private boolean quicksaveRunning = false;
+    private boolean quicksaveRequested = false;
+
     private ReadOnlyIntegerProperty currentBuildingIndex;
     private Floor selectedFloor;
     private Room selectedRoom;
@@ -60,8 +76,8 @@ public class ViewModel {
      * <tr><th>Key</th><th>Action</th></tr>
      * <tr><td>P, p</td><td>Toggles whether the simulation is paused</td></tr>
      * <tr><td>Q, q</td><td>Quits the application entirely</td></tr>
-     * <tr><td>S, s</td><td>Saves the simulation data to "saves/quicksave.txt",
-     * see {@link ViewModel#save(String)}
+     * <tr><td>S, s</td><td>Saves the simulation data to "saves/quicksave.txt"
+     * in the background, see {@link ViewModel#quicksave()}
      * </td></tr>
      * </table>
      *
@@ -77,11 +93,7 @@ public class ViewModel {
                 System.exit(1);
                 break;
             case S:
-                try {
-                    save("quicksave.txt");
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
+                quicksave();
                 break;
             default:
         }
@@ -126,16 +138,84 @@ public class ViewModel {
      * @ass2
      */
     public void save(String filename) throws IOException {
-        BufferedWriter writer = new BufferedWriter(new FileWriter(
-                "saves/" + filename));
+        BuildingInitialiser.saveBuildings(filename, this.buildings);
+    }
 
-        StringJoiner joiner = new StringJoiner(System.lineSeparator());
-        for (Building building : this.buildings) {
-            joiner.add(building.encode());
+    /**
+     * Saves the data used by the building management system to
+     * "saves/quicksave.txt" on a background thread, without blocking the
+     * JavaFX thread.
+     * <p>
+     * A binary snapshot of the buildings (see {@link BinarySnapshot}) is
+     * taken in memory on the JavaFX thread, between ticks and instructions,
+     * so the saved file is always consistent. The snapshot is then read back
+     * and written to the file on a background thread, without sharing any
+     * state with the live model.
+     * <p>
+     * If a quicksave is already in progress, another quicksave is performed
+     * once it finishes; any further requests made in the meantime are
+     * coalesced into that one quicksave.
+     * <p>
+     * The <code>saveStatusText</code> StringProperty is updated when the
+     * quicksave starts and finishes, and an error dialog is shown if the
+     * quicksave fails. Must be called on the JavaFX thread.
+     */
+    public void quicksave() {
+        if (this.quicksaveRunning) {
+            this.quicksaveRequested = true;
+            return;
+        }
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        try {
+            BinarySnapshot.write(snapshot, this.buildings);
+        } catch (IOException e) {
+            createErrorDialog("Error saving buildings to file",
+                    e.getMessage());
+            return;
+        }
+        this.quicksaveRunning = true;
+        this.saveStatusText.setValue("Quicksaving...");
+        this.saveExecutor.execute(() -> {
+            Exception failure = null;
+            // the copied sensors register with a throwaway manager, so they
+            // are never ticked along with the live model
+            TimedItemManager.Scope scope =
+                    new TimedItemManager().makeCurrent();
+            try {
+                List<Building> copy = BinarySnapshot.read(
+                        new ByteArrayInputStream(snapshot.toByteArray()));
+                BuildingInitialiser.saveBuildings("quicksave.txt", copy);
+            } catch (IOException | FileFormatException
+                    | RuntimeException e) {
+                failure = e;
+            } finally {
+                scope.close();
+            }
+            final Exception result = failure;
+            Platform.runLater(() -> quicksaveFinished(result));
+        });
+    }
+
+    /**
+     * Reports the result of a quicksave, and starts another quicksave if one
+     * was requested while it was running. Called on the JavaFX thread.
+     *
+     * @param failure exception that caused the quicksave to fail; null if
+     *                the quicksave succeeded
+     */
+    private void quicksaveFinished(Exception failure) {
+        this.quicksaveRunning = false;
+        if (failure == null) {
+            this.saveStatusText.setValue("Quicksaved");
+        } else {
+            this.saveStatusText.setValue("Quicksave failed");
+            createErrorDialog("Error saving buildings to file",
+                    failure.getMessage());
+        }
+        if (this.quicksaveRequested) {
+            this.quicksaveRequested = false;
+            quicksave();
         }
-        writer.write(joiner.toString());
-        writer.flush();
-        writer.close();
     }
 
     /**
@@ -196,6 +276,16 @@ public class ViewModel {
         return timeElapsed;
     }
 
+    /**
+     * Returns the property containing the status of the most recent
+     * quicksave.
+     *
+     * @return quicksave status property
+     */
+    public StringProperty getSaveStatusTextProperty() {
+        return saveStatusText;
+    }
+
     /**
      * @ass2_given
      */
@@ -268,7 +358,7 @@ public class ViewModel {
         Building building = this.getSelectedBuilding();
         joiner.add("Building");
         joiner.add("Name: " + building.getName());
-        joiner.add("Floors: " + building.getFloors().size());
+        joiner.add("Floors: " + building.getFloorsView().size());
 
         if (noSelected.get()) {
             this.getInfoTextProperty().setValue(joiner.toString());
@@ -279,11 +369,12 @@ public class ViewModel {
         joiner.add("Number: " + this.selectedFloor.getFloorNumber());
         joiner.add("Width: " + this.selectedFloor.getWidth());
         joiner.add("Length: " + this.selectedFloor.getLength());
-        joiner.add("Area: " + this.selectedFloor.calculateArea());
-        joiner.add("Occupied Area: " + this.selectedFloor.occupiedArea());
-        joiner.add("Free Area: " + (this.selectedFloor.calculateArea()
-                - this.selectedFloor.occupiedArea()));
-        joiner.add("Rooms: " + this.selectedFloor.getRooms().size());
+        double floorArea = this.selectedFloor.calculateArea();
+        double occupiedArea = this.selectedFloor.occupiedArea();
+        joiner.add("Area: " + floorArea);
+        joiner.add("Occupied Area: " + occupiedArea);
+        joiner.add("Free Area: " + (floorArea - occupiedArea));
+        joiner.add("Rooms: " + this.selectedFloor.getRoomsView().size());
         if (this.selectedFloor.getMaintenanceSchedule() != null) {
             joiner.add("Maintenance Sched.: " +
                     this.selectedFloor.getMaintenanceSchedule().encode());
@@ -297,15 +388,16 @@ public class ViewModel {
             joiner.add("Fire Drill: " + this.selectedRoom.fireDrillOngoing());
             joiner.add("Maintenance: " + this.selectedRoom.maintenanceOngoing());
             joiner.add("State: " + this.selectedRoom.evaluateRoomState());
-            joiner.add("Sensors: " + this.selectedRoom.getSensors().size());
+            List<Sensor> sensors = this.selectedRoom.getSensorsView();
+            joiner.add("Sensors: " + sensors.size());
             if (this.selectedRoom.getHazardEvaluator() != null) {
                 joiner.add("Hazard Evaluator: "
                         + this.selectedRoom.getHazardEvaluator());
             }
 
-            if (!this.selectedRoom.getSensors().isEmpty()) {
+            if (!sensors.isEmpty()) {
                 joiner.add("\nSensors");
-                for (Sensor s : this.selectedRoom.getSensors()) {
+                for (Sensor s : sensors) {
                     joiner.add(s.getClass().getSimpleName());
                 }
             }
@@ -457,10 +549,9 @@ public class ViewModel {
 
         // New floor should be on top of building
         int floorNum = 1;
-        if (!currentBuilding.getFloors().isEmpty()) {
-            floorNum = currentBuilding.getFloors()
-                    .get(currentBuilding.getFloors().size() - 1)
-                    .getFloorNumber() + 1;
+        List<Floor> floors = currentBuilding.getFloorsView();
+        if (!floors.isEmpty()) {
+            floorNum = floors.get(floors.size() - 1).getFloorNumber() + 1;
         }
 
         int floorWidth;
@@ -698,7 +789,8 @@ public class ViewModel {
 
     private void addHazardEvaluator(List<Optional<String>> args) {
         List<HazardSensor> hazardSensors = new ArrayList<>();
-        for (Sensor s : getSelectedRoom().getSensors()) {
+        List<Sensor> sensors = getSelectedRoom().getSensorsView();
+        for (Sensor s : sensors) {
             if (s instanceof HazardSensor) {
                 hazardSensors.add((HazardSensor) s);
             }
@@ -714,8 +806,8 @@ public class ViewModel {
         }
 
         Map<HazardSensor, Integer> weightings = new HashMap<>();
-        for (int i = 0; i < getSelectedRoom().getSensors().size(); ++i) {
-            Sensor s = getSelectedRoom().getSensors().get(i);
+        for (int i = 0; i < sensors.size(); ++i) {
+            Sensor s = sensors.get(i);
             if (s instanceof HazardSensor) {
                 int weighting;
                 try {
@@ -1,20 +1,36 @@
 package bms.hazardevaluation;
 
 import bms.sensors.HazardSensor;
+import bms.sensors.SensorKind;
 
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Evaluates the hazard level of a location using weightings for the
  * sensor values.
+ * <p>
+ * Sensors are held in the order they appear in a room, that is,
+ * alphabetically by class name, so that {@link #getWeightings()} lines up
+ * with {@link bms.room.Room#getSensors()}.
  */
-public class WeightingBasedHazardEvaluator implements HazardEvaluator {
+public class WeightingBasedHazardEvaluator extends CachingHazardEvaluator {
     /**
-     * The map of sensors to their respective weighting in the evaluator
+     * Sensors to be used in the hazard level calculation, in room order.
      */
-    private Map<HazardSensor, Integer> sensors;
+    private HazardSensor[] sensors;
+
+    /**
+     * Weighting of each sensor, indexed like {@link #sensors}.
+     */
+    private int[] weightings;
+
+    /**
+     * Sum of all weightings.
+     */
+    private int weightingTotal;
 
     /**
      * Creates a new weighting-based hazard evaluator with the given sensors
@@ -26,43 +42,131 @@ public class WeightingBasedHazardEvaluator implements HazardEvaluator {
      */
     public WeightingBasedHazardEvaluator(Map<HazardSensor, Integer> sensors)
             throws IllegalArgumentException {
+        super(sensors.keySet());
+        List<Map.Entry<HazardSensor, Integer>> entries =
+                new ArrayList<>(sensors.entrySet());
+        // stable, so sensors of unknown kinds keep the map's order at the end
+        entries.sort(Comparator.comparingInt(
+                entry -> kindOrder(entry.getKey())));
 
-        this.sensors = sensors;
+        this.sensors = new HazardSensor[entries.size()];
+        this.weightings = new int[entries.size()];
         int weightingTotal = 0;
-        for (Integer weighting : sensors.values()) {
+        for (int i = 0; i < entries.size(); i++) {
+            int weighting = entries.get(i).getValue();
             if (weighting < 0 || weighting > 100) {
                 throw new IllegalArgumentException();
             }
+            this.sensors[i] = entries.get(i).getKey();
+            this.weightings[i] = weighting;
             weightingTotal += weighting;
         }
         if (weightingTotal != 100) {
             throw new IllegalArgumentException();
         }
+        this.weightingTotal = weightingTotal;
+    }
+
+    /**
+     * Returns the position of the given sensor's kind in room order.
+     *
+     * @param sensor sensor to order
+     * @return ordinal of the sensor's kind; or the number of kinds if it is
+     * not a known kind of sensor
+     */
+    private static int kindOrder(HazardSensor sensor) {
+        SensorKind kind = SensorKind.of(sensor);
+        return kind == null ? SensorKind.count() : kind.ordinal();
     }
 
     /**
      * {@inheritDoc}
+     * <p>
+     * The weighted average is rounded to the nearest integer, with halves
+     * rounded up.
      */
     @Override
-    public int evaluateHazardLevel() {
-        float total = 0;
-        float div = 0;
-        for (Map.Entry<HazardSensor,Integer> entry : this.sensors.entrySet()) {
-            total += (entry.getKey().getHazardLevel() * entry.getValue());
-            div += entry.getValue();
+    protected int calculateHazardLevel() {
+        HazardSensor[] sensors = this.sensors;
+        int[] weightings = this.weightings;
+        int total = 0;
+        for (int i = 0; i < sensors.length; i++) {
+            total += sensors[i].getHazardLevel() * weightings[i];
         }
-        return Math.round(total / div);
+        // levels and weightings are non-negative, so integer division
+        // after adding half the divisor rounds half up like Math.round
+        return (total + this.weightingTotal / 2) / this.weightingTotal;
     }
 
     /**
      * Returns a list containing the weightings associated with all of the
      * sensors monitored by this hazard evaluator.
+     * <p>
+     * Weightings are given in the same order as the sensors appear in a room,
+     * alphabetically by sensor class name.
      *
      * @return weightings
      */
     public List<Integer> getWeightings() {
-        return Collections.list(Collections.enumeration(
-                this.sensors.values()));
+        List<Integer> result = new ArrayList<>(this.weightings.length);
+        for (int weighting : this.weightings) {
+            result.add(weighting);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the weighting associated with the given sensor.
+     *
+     * @param sensor sensor monitored by this hazard evaluator
+     * @return weighting of the sensor; 0 if the sensor is not monitored by
+     * this hazard evaluator
+     */
+    public int getWeighting(HazardSensor sensor) {
+        for (int i = 0; i < this.sensors.length; i++) {
+            if (this.sensors[i] == sensor) {
+                return this.weightings[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the number of sensors monitored by this hazard evaluator.
+     *
+     * @return number of sensors
+     */
+    int getSensorCount() {
+        return this.sensors.length;
+    }
+
+    /**
+     * Returns the sensor at the given position, in room order.
+     *
+     * @param index position of the sensor
+     * @return sensor at that position
+     */
+    HazardSensor getSensor(int index) {
+        return this.sensors[index];
+    }
+
+    /**
+     * Returns the weighting of the sensor at the given position.
+     *
+     * @param index position of the sensor
+     * @return weighting of the sensor at that position
+     */
+    int getWeightingAt(int index) {
+        return this.weightings[index];
+    }
+
+    /**
+     * Returns the sum of all weightings.
+     *
+     * @return weighting total
+     */
+    int getWeightingTotal() {
+        return this.weightingTotal;
     }
 
     /**